@@ -0,0 +1,269 @@
+package communitycommons;
+
+import com.mendix.core.Core;
+import com.mendix.core.CoreException;
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.systemwideinterfaces.core.IMendixObject;
+import communitycommons.proxies.LogNodes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Processes all objects of an xpath query in batches.
+ *
+ * A coordinator pages through the objects by id ([id &gt; last id] or [id &lt; last id] when descending). Each page is
+ * an id range that is handed to one of at most 'parallelism' workers, so the coordinator retrieves the next range while
+ * the workers process the previous ones. Completion is reported through {@link #getCompletion()}, there is no polling
+ * involved.
+ *
+ * Note that objects that are added to the dataset while the job is running are processed as well, as long as their id
+ * is beyond the range that has already been retrieved.
+ */
+public class BatchJob {
+
+	private static final String LOGNODE = LogNodes.CommunityCommons.name();
+
+	private static final AtomicLong jobnr = new AtomicLong();
+	private static final Map<Long, BatchJob> runningJobs = new ConcurrentHashMap<>();
+
+	private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+		//Default thread factory takes care of setting the proper thread context
+		private final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+		private final AtomicInteger threadnr = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread t = defaultFactory.newThread(runnable);
+			t.setName("CommunityCommons batch job thread " + threadnr.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+
+	});
+
+	public interface IBatchItemHandler {
+
+		void exec(IContext context, IMendixObject obj) throws Exception;
+
+	}
+
+	private final long id;
+	private final String description;
+	private final String xpath;
+	private final int batchsize;
+	private final boolean asc;
+	private final int parallelism;
+	private final IBatchItemHandler handler;
+
+	private final CompletableFuture<Boolean> completion = new CompletableFuture<>();
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+	private final AtomicLong processed = new AtomicLong();
+	private final AtomicLong batches = new AtomicLong();
+	private volatile long total = -1;
+	private volatile boolean cancelled = false;
+
+	private BatchJob(String description, String xpath, int batchsize, boolean asc, int parallelism, IBatchItemHandler handler) {
+		this.id = jobnr.incrementAndGet();
+		this.description = description;
+		this.xpath = xpath.startsWith("//") ? xpath : "//" + xpath;
+		this.batchsize = batchsize;
+		this.asc = asc;
+		this.parallelism = parallelism;
+		this.handler = handler;
+	}
+
+	/**
+	 * Starts a batch job in the background.
+	 *
+	 * @param description Name of the job, used in log messages
+	 * @param xpath       Xpath query of the objects to process
+	 * @param batchsize   Number of objects in a single id range
+	 * @param asc         Whether to process the objects in ascending id order
+	 * @param parallelism Number of id ranges that are processed at the same time. 1 processes the objects in order.
+	 * @param handler     Invoked for every object, with the context of the range the object belongs to
+	 * @return the running job
+	 */
+	public static BatchJob start(String description, String xpath, int batchsize, boolean asc, int parallelism, IBatchItemHandler handler) {
+		if (batchsize < 1 || parallelism < 1)
+			throw new IllegalArgumentException("Batch size and parallelism should be larger than zero");
+
+		final BatchJob job = new BatchJob(description, xpath, batchsize, asc, parallelism, handler);
+		runningJobs.put(job.id, job);
+		job.completion.whenComplete((result, e) -> runningJobs.remove(job.id));
+
+		try {
+			executor.execute(job::coordinate);
+		} catch (RuntimeException e) {
+			job.completion.completeExceptionally(e);
+			throw e;
+		}
+		return job;
+	}
+
+	/**
+	 * @return the jobs that have not finished yet
+	 */
+	public static Collection<BatchJob> getRunningJobs() {
+		return Collections.unmodifiableCollection(runningJobs.values());
+	}
+
+	private void coordinate() {
+		final Semaphore workers = new Semaphore(parallelism);
+		try {
+			final IContext context = Core.createSystemContext();
+			total = Core.retrieveXPathQueryAggregate(context, "count(" + xpath + ")");
+			Logging.debug(LOGNODE, "[ExecuteInBatches] Starting " + this + " on ~ " + total + " objects divided over ~ "
+				+ (long) Math.ceil(((double) total) / batchsize) + " batches.");
+
+			long last = 0;
+			while (!cancelled && failure.get() == null) {
+				final List<IMendixObject> objects = retrieveRange(context, last);
+
+				//no new objects found :)
+				if (objects.isEmpty())
+					break;
+
+				last = objects.get(objects.size() - 1).getId().toLong();
+
+				workers.acquire();
+				if (cancelled || failure.get() != null) {
+					workers.release();
+					break;
+				}
+				CompletableFuture.runAsync(() -> processRange(objects), executor)
+					.whenComplete((result, e) -> {
+						if (e != null)
+							failure.compareAndSet(null, e instanceof CompletionException ? e.getCause() : e);
+						workers.release();
+					});
+			}
+		} catch (Throwable e) {
+			failure.compareAndSet(null, e);
+		}
+
+		// wait until the ranges that are still being processed are finished
+		workers.acquireUninterruptibly(parallelism);
+		finish();
+	}
+
+	private List<IMendixObject> retrieveRange(IContext context, long last) throws CoreException {
+		if (last == 0)
+			return Core.createXPathQuery(xpath)
+				.setAmount(batchsize)
+				.addSort("id", asc)
+				.execute(context);
+
+		return Core.createXPathQuery(xpath + "[id " + (asc ? ">" : "<") + " $last]")
+			.setVariable("last", last)
+			.setAmount(batchsize)
+			.addSort("id", asc)
+			.execute(context);
+	}
+
+	private void processRange(List<IMendixObject> objects) {
+		final IContext context = Core.createSystemContext();
+		for (IMendixObject obj : objects) {
+			if (cancelled || failure.get() != null)
+				return;
+			try {
+				handler.exec(context, obj);
+			} catch (Exception e) {
+				throw new RuntimeException("[ExecuteInBatches] Failed to run in batch: " + e.getMessage(), e);
+			}
+			processed.incrementAndGet();
+		}
+		batches.incrementAndGet();
+	}
+
+	private void finish() {
+		final Throwable e = failure.get();
+		if (e != null) {
+			Logging.error(LOGNODE, "[ExecuteInBatches] Failed to finish " + this + ": " + e.getMessage(), e);
+			completion.completeExceptionally(e);
+		} else if (cancelled) {
+			Logging.info(LOGNODE, "[ExecuteInBatches] Cancelled " + this + " after " + processed.get() + " objects.");
+			completion.complete(false);
+		} else {
+			Logging.debug(LOGNODE, "[ExecuteInBatches] Succesfully finished " + this + " on " + processed.get() + " objects.");
+			completion.complete(true);
+		}
+	}
+
+	/**
+	 * Stops the job. Objects that are being processed are finished, no new objects are started.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Blocks until the job has finished.
+	 *
+	 * @return true if all objects were processed, false if the job failed or was cancelled
+	 */
+	public boolean await() throws InterruptedException {
+		try {
+			return completion.get();
+		} catch (ExecutionException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return completes with true when all objects were processed, with false when the job was cancelled, or
+	 * exceptionally with the first failure
+	 */
+	public CompletableFuture<Boolean> getCompletion() {
+		return completion;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public boolean isDone() {
+		return completion.isDone();
+	}
+
+	public long getProcessedCount() {
+		return processed.get();
+	}
+
+	public long getProcessedBatchCount() {
+		return batches.get();
+	}
+
+	/**
+	 * @return the number of objects at the start of the job, or -1 if it has not been counted yet
+	 */
+	public long getTotalCount() {
+		return total;
+	}
+
+	@Override
+	public String toString() {
+		return "batch job #" + id + " '" + description + "'";
+	}
+}
@@ -0,0 +1,269 @@
+package communitycommons;
+
+import com.mendix.core.Core;
+import com.mendix.core.CoreException;
+import com.mendix.core.objectmanagement.member.MendixDateTime;
+import com.mendix.core.objectmanagement.member.MendixEnum;
+import com.mendix.core.objectmanagement.member.MendixObjectReference;
+import com.mendix.core.objectmanagement.member.MendixObjectReferenceSet;
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.systemwideinterfaces.core.IMendixIdentifier;
+import com.mendix.systemwideinterfaces.core.IMendixObject;
+import com.mendix.systemwideinterfaces.core.IMendixObjectMember;
+import com.mendix.systemwideinterfaces.core.meta.IMetaEnumValue;
+import com.mendix.systemwideinterfaces.core.meta.IMetaEnumeration;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Template with {path} and {@constant} tokens, see {@link StringUtils#substituteTemplate}. A template is parsed once
+ * and cached by its text; the paths of its tokens are split up front.
+ *
+ * Rendering uses a {@link Renderer}, which remembers the objects it retrieved and the date formats and constants it
+ * used. When rendering a list of objects, the objects along the association paths of the template are retrieved for
+ * the whole list at once.
+ */
+public class CompiledTemplate {
+
+	private static final Pattern TOKEN = Pattern.compile("\\{(@)?([\\w./]+)\\}");
+	private static final int MAX_CACHED_TEMPLATES = 1000;
+	private static final Map<String, CompiledTemplate> cache = new ConcurrentHashMap<>();
+
+	private final List<String> literals = new ArrayList<>();
+	private final List<Token> tokens = new ArrayList<>();
+	private final boolean empty;
+
+	private static final class Token {
+		private final boolean constant;
+		private final String path;
+		private final String[] steps;
+
+		Token(boolean constant, String path) {
+			this.constant = constant;
+			this.path = path;
+			this.steps = path.split("/");
+		}
+	}
+
+	private CompiledTemplate(String template) {
+		// avoid NPE's, save CPU
+		empty = template == null || template.trim().isEmpty();
+		if (empty)
+			return;
+
+		Matcher matcher = TOKEN.matcher(template);
+		int start = 0;
+		while (matcher.find()) {
+			literals.add(template.substring(start, matcher.start()));
+			tokens.add(new Token(matcher.group(1) != null, matcher.group(2)));
+			start = matcher.end();
+		}
+		literals.add(template.substring(start));
+	}
+
+	public static CompiledTemplate compile(String template) {
+		if (template == null)
+			return new CompiledTemplate(null);
+
+		CompiledTemplate compiled = cache.get(template);
+		if (compiled == null) {
+			compiled = new CompiledTemplate(template);
+			// templates are usually constants, so this limit is only a safety net for generated templates
+			if (cache.size() < MAX_CACHED_TEMPLATES)
+				cache.put(template, compiled);
+		}
+		return compiled;
+	}
+
+	public String render(IContext context, IMendixObject substitute, boolean HTMLEncode, String datetimeformat) throws Exception {
+		return render(new Renderer(context, datetimeformat), substitute, HTMLEncode);
+	}
+
+	/**
+	 * Renders the template for every object. Objects referred to by the paths of the template are retrieved once for
+	 * all objects.
+	 */
+	public List<String> renderAll(IContext context, List<IMendixObject> substitutes, boolean HTMLEncode, String datetimeformat) throws Exception {
+		Renderer renderer = new Renderer(context, datetimeformat);
+		for (Token token : tokens)
+			if (!token.constant)
+				renderer.prefetch(substitutes, token.steps);
+
+		List<String> res = new ArrayList<>(substitutes.size());
+		for (IMendixObject substitute : substitutes)
+			res.add(render(renderer, substitute, HTMLEncode));
+		return res;
+	}
+
+	private String render(Renderer renderer, IMendixObject substitute, boolean HTMLEncode) throws Exception {
+		if (empty)
+			return "";
+
+		StringBuilder res = new StringBuilder(literals.get(0));
+		for (int i = 0; i < tokens.size(); i++) {
+			Token token = tokens.get(i);
+			String value = token.constant
+				? renderer.getConstant(token.path)
+				: renderer.getValueOfPath(substitute, token.steps, 0);
+			res.append(HTMLEncode ? StringUtils.HTMLEncode(value) : value);
+			res.append(literals.get(i + 1));
+		}
+		return res.toString();
+	}
+
+	/**
+	 * Resolves paths for one or more objects. Not thread safe.
+	 */
+	static final class Renderer {
+		private final IContext context;
+		private final String datetimeformat;
+		private final Map<IMendixIdentifier, IMendixObject> objects = new HashMap<>();
+		private final Map<String, String> constants = new HashMap<>();
+		private SimpleDateFormat dateFormat;
+
+		Renderer(IContext context, String datetimeformat) {
+			this.context = context;
+			this.datetimeformat = datetimeformat != null && !datetimeformat.isEmpty() ? datetimeformat : "EEE dd MMM yyyy, HH:mm";
+		}
+
+		String getConstant(String name) {
+			return constants.computeIfAbsent(name, n -> String.valueOf(Core.getConfiguration().getConstantValue(n)));
+		}
+
+		/**
+		 * Retrieves the objects along the path for all substitutes, one association at a time.
+		 */
+		void prefetch(List<IMendixObject> substitutes, String[] steps) throws CoreException {
+			List<IMendixObject> level = substitutes;
+			for (int i = 0; i < steps.length - 1 && !level.isEmpty(); i++) {
+				List<IMendixIdentifier> ids = new ArrayList<>();
+				for (IMendixObject obj : level) {
+					IMendixObjectMember<?> member = obj.getMember(context, steps[i]);
+					if (member instanceof MendixObjectReference) {
+						ids.add(((MendixObjectReference) member).getValue(context));
+					} else if (member instanceof MendixObjectReferenceSet) {
+						List<IMendixIdentifier> refs = ((MendixObjectReferenceSet) member).getValue(context);
+						if (refs != null)
+							ids.addAll(refs);
+					}
+				}
+
+				Set<IMendixIdentifier> toRetrieve = new LinkedHashSet<>();
+				Map<IMendixIdentifier, IMendixObject> next = new LinkedHashMap<>();
+				for (IMendixIdentifier id : ids) {
+					if (id == null)
+						continue;
+					IMendixObject known = objects.get(id);
+					if (known != null)
+						next.put(id, known);
+					else
+						toRetrieve.add(id);
+				}
+				if (!toRetrieve.isEmpty()) {
+					for (IMendixObject obj : Core.retrieveIdList(context, new ArrayList<>(toRetrieve))) {
+						objects.put(obj.getId(), obj);
+						next.put(obj.getId(), obj);
+					}
+				}
+				level = new ArrayList<>(next.values());
+			}
+		}
+
+		private IMendixObject retrieve(IMendixIdentifier id) throws CoreException {
+			IMendixObject obj = objects.get(id);
+			if (obj == null) {
+				obj = Core.retrieveId(context, id);
+				if (obj != null)
+					objects.put(id, obj);
+			}
+			return obj;
+		}
+
+		String getValueOfPath(IMendixObject substitute, String[] path, int index) throws Exception {
+			if (path.length - index == 1) {
+				IMendixObjectMember<?> member = substitute.getMember(context, path[index]);
+
+				//special case, see ticket 9135, format datetime.
+				if (member instanceof MendixDateTime) {
+					Date time = ((MendixDateTime) member).getValue(context);
+					if (time == null) {
+						return "";
+					}
+					if (dateFormat == null)
+						dateFormat = new SimpleDateFormat(datetimeformat);
+					return dateFormat.format(time);
+				}
+
+				if (member instanceof MendixEnum) {
+					String value = member.parseValueToString(context);
+					if (value == null || value.isEmpty()) {
+						return "";
+					}
+
+					IMetaEnumeration enumeration = ((MendixEnum) member).getEnumeration();
+					IMetaEnumValue evalue = enumeration.getEnumValues().get(value);
+					return Core.getInternationalizedString(context, evalue.getI18NCaptionKey());
+				}
+				//default
+				return member.parseValueToString(context);
+			} else if (path.length - index <= 0) {
+				throw new Exception("communitycommons.ORM.getValueOfPath: Unexpected end of path.");
+			} else {
+				IMendixObjectMember<?> member = substitute.getMember(context, path[index]);
+				if (member instanceof MendixObjectReference) {
+					MendixObjectReference ref = (MendixObjectReference) member;
+					IMendixIdentifier id = ref.getValue(context);
+					if (id == null) {
+						return "";
+					}
+					IMendixObject obj = retrieve(id);
+					if (obj == null) {
+						return "";
+					}
+					return getValueOfPath(obj, path, index + 1);
+				} else if (member instanceof MendixObjectReferenceSet) {
+					MendixObjectReferenceSet ref = (MendixObjectReferenceSet) member;
+					List<IMendixIdentifier> ids = ref.getValue(context);
+					if (ids == null) {
+						return "";
+					}
+					StringBuilder res = new StringBuilder();
+					for (IMendixIdentifier id : ids) {
+						if (id == null) {
+							continue;
+						}
+						IMendixObject obj = retrieve(id);
+						if (obj == null) {
+							continue;
+						}
+						res.append(", ");
+						res.append(getValueOfPath(obj, path, index + 1));
+					}
+					return res.length() > 1 ? res.toString().substring(2) : "";
+				} else {
+					throw new Exception("communitycommons.ORM.getValueOfPath: Not a valid reference: '" + path[index] + "' in '"
+						+ String.join("/", Arrays.asList(path).subList(index, path.length)) + "'");
+				}
+			}
+		}
+	}
+
+	public List<String> getTokens() {
+		List<String> res = new ArrayList<>();
+		for (Token token : tokens)
+			res.add(token.constant ? "@" + token.path : token.path);
+		return Collections.unmodifiableList(res);
+	}
+}
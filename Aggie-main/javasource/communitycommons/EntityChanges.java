@@ -0,0 +1,107 @@
+package communitycommons;
+
+import com.mendix.core.Core;
+import com.mendix.systemwideinterfaces.core.IMendixObject;
+import com.mendix.systemwideinterfaces.core.meta.IMetaObject;
+import communitycommons.proxies.LogNodes;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks commits and deletes per entity, using after commit and after delete listeners. Every entity has a generation
+ * that increases when an object of that entity (or of one of its specializations) is committed or deleted, and threads
+ * can wait for the next change of an entity.
+ *
+ * Only changes made on this runtime instance are seen, and listeners are invoked when the object is committed, not when
+ * its transaction ends.
+ */
+final class EntityChanges {
+
+	private static final String LOGNODE = LogNodes.CommunityCommons.name();
+
+	private static final Map<String, Generation> generations = new ConcurrentHashMap<>();
+	private static volatile boolean listening = false;
+
+	private EntityChanges() {
+	}
+
+	private static final class Generation {
+		private long value = 0;
+
+		synchronized long get() {
+			return value;
+		}
+
+		synchronized void increment() {
+			value += 1;
+			notifyAll();
+		}
+
+		synchronized boolean awaitChange(long since, long timeoutMSecs) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + timeoutMSecs;
+			long remaining = timeoutMSecs;
+			while (value == since && remaining > 0) {
+				wait(remaining);
+				remaining = deadline - System.currentTimeMillis();
+			}
+			return value != since;
+		}
+	}
+
+	/**
+	 * @return the current generation of the entity. Starts listening for changes if that did not happen yet.
+	 */
+	static long getGeneration(String entity) {
+		registerListeners();
+		return generation(entity).get();
+	}
+
+	/**
+	 * Waits until the generation of the entity differs from the given one, or the timeout expires.
+	 *
+	 * @return true if the entity changed
+	 */
+	static boolean awaitChange(String entity, long since, long timeoutMSecs) throws InterruptedException {
+		registerListeners();
+		return generation(entity).awaitChange(since, timeoutMSecs);
+	}
+
+	/**
+	 * Marks the entity as changed, for changes that the listeners do not see.
+	 */
+	static void changed(String entity) {
+		generation(entity).increment();
+	}
+
+	private static Generation generation(String entity) {
+		return generations.computeIfAbsent(entity, e -> new Generation());
+	}
+
+	private static void registerListeners() {
+		if (listening)
+			return;
+		synchronized (EntityChanges.class) {
+			if (listening)
+				return;
+			Core.getListenersRegistry().registerAfterCommitListener(EntityChanges::onChange);
+			Core.getListenersRegistry().registerAfterDeleteListener(EntityChanges::onChange);
+			listening = true;
+			Logging.debug(LOGNODE, "[EntityChanges] Registered commit and delete listeners");
+		}
+	}
+
+	private static void onChange(List<IMendixObject> objects) {
+		final Set<String> changed = new HashSet<String>();
+		for (IMendixObject object : objects)
+			// queries on a generalization return the specializations as well
+			for (IMetaObject meta = object.getMetaObject(); meta != null; meta = meta.getSuperObject())
+				if (!changed.add(meta.getName()))
+					break;
+
+		for (String entity : changed)
+			changed(entity);
+	}
+}
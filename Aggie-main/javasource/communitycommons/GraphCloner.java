@@ -0,0 +1,196 @@
+package communitycommons;
+
+import com.mendix.core.Core;
+import com.mendix.core.CoreException;
+import com.mendix.core.objectmanagement.member.MendixAutoNumber;
+import com.mendix.core.objectmanagement.member.MendixObjectReference;
+import com.mendix.core.objectmanagement.member.MendixObjectReferenceSet;
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.systemwideinterfaces.core.IMendixIdentifier;
+import com.mendix.systemwideinterfaces.core.IMendixObject;
+import com.mendix.systemwideinterfaces.core.IMendixObjectMember;
+import com.mendix.systemwideinterfaces.core.meta.IMetaAssociation;
+import com.mendix.systemwideinterfaces.core.meta.IMetaAssociation.AssociationType;
+import com.mendix.systemwideinterfaces.core.meta.IMetaObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deep clone of an object graph, see {@link ORM#deepClone}.
+ *
+ * The graph is discovered level by level: the objects referred to by the objects of one level form the next level.
+ * Clones are instantiated as soon as an object is discovered, so references can be set right away. Every level is
+ * retrieved with one retrieveIdList call, reverse associations with one query per association per
+ * {@value #REVERSE_CHUNKSIZE} objects of a level, and all clones are committed at once at the end.
+ */
+class GraphCloner {
+
+	private static final int REVERSE_CHUNKSIZE = 100;
+
+	private final IContext ctx;
+	private final Set<String> toskip;
+	private final Set<String> tokeep;
+	private final List<String> revAssocs;
+	private final Set<String> skipEntities;
+	private final Set<String> skipModules;
+
+	// source id -> clone, in order of discovery
+	private final Map<IMendixIdentifier, IMendixObject> clones = new LinkedHashMap<IMendixIdentifier, IMendixObject>();
+
+	GraphCloner(IContext ctx, String membersToSkip, String membersToKeep, String reverseAssociations, String excludeEntities, String excludeModules) {
+		this.ctx = ctx;
+		this.toskip = new HashSet<String>(Arrays.asList((membersToSkip + ",createdDate,changedDate").split(",")));
+		this.tokeep = new HashSet<String>(Arrays.asList((membersToKeep + ",System.owner,System.changedBy").split(",")));
+		this.revAssocs = Arrays.asList(reverseAssociations.split(","));
+		this.skipEntities = new HashSet<String>(Arrays.asList(excludeEntities.split(",")));
+		this.skipModules = new HashSet<String>(Arrays.asList(excludeModules.split(",")));
+	}
+
+	void cloneInto(IMendixObject source, IMendixObject target) throws CoreException {
+		clones.put(source.getId(), target);
+
+		// source object -> clone
+		Map<IMendixObject, IMendixObject> level = new LinkedHashMap<IMendixObject, IMendixObject>();
+		level.put(source, target);
+
+		while (!level.isEmpty()) {
+			Map<IMendixObject, IMendixObject> next = new LinkedHashMap<IMendixObject, IMendixObject>();
+			List<IMendixIdentifier> toRetrieve = new ArrayList<IMendixIdentifier>();
+
+			for (Map.Entry<IMendixObject, IMendixObject> pair : level.entrySet())
+				copyMembers(pair.getKey(), pair.getValue(), toRetrieve);
+			discoverReverseAssociations(level.keySet(), next);
+
+			if (!toRetrieve.isEmpty())
+				for (IMendixObject src : Core.retrieveIdList(ctx, toRetrieve))
+					next.put(src, clones.get(src.getId()));
+
+			level = next;
+		}
+
+		Core.commitWithoutEvents(ctx, new ArrayList<IMendixObject>(clones.values()));
+	}
+
+	private void copyMembers(IMendixObject src, IMendixObject tar, List<IMendixIdentifier> toRetrieve) {
+		Map<String, ? extends IMendixObjectMember<?>> members = src.getMembers(ctx);
+		String type = src.getType() + "/";
+
+		for (var entry : members.entrySet()) {
+			String key = entry.getKey();
+			if (!toskip.contains(key) && !toskip.contains(type + key)) {
+				IMendixObjectMember<?> m = entry.getValue();
+				if (m.isVirtual() || m instanceof MendixAutoNumber) {
+					continue;
+				}
+
+				boolean keep = tokeep.contains(key) || tokeep.contains(type + key);
+
+				if (m instanceof MendixObjectReference && !keep && m.getValue(ctx) != null) {
+					tar.setValue(ctx, key, getCloneOf(((MendixObjectReference) m).getValue(ctx), toRetrieve));
+				} else if (m instanceof MendixObjectReferenceSet && !keep && m.getValue(ctx) != null) {
+					MendixObjectReferenceSet rs = (MendixObjectReferenceSet) m;
+					List<IMendixIdentifier> res = new ArrayList<IMendixIdentifier>();
+					for (IMendixIdentifier item : rs.getValue(ctx))
+						res.add(getCloneOf(item, toRetrieve));
+					tar.setValue(ctx, key, res);
+				} else if ("__UUID__".equals(key) && (ORM.isFileDocument(src) || ORM.isFileDocument(tar))) {
+					// do nothing
+				} else {
+					tar.setValue(ctx, key, m.getValue(ctx));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the id of the clone of the object, which is instantiated and queued for retrieval if the object was not
+	 * discovered before, or the id of the object itself if it should not be cloned
+	 */
+	private IMendixIdentifier getCloneOf(IMendixIdentifier src, List<IMendixIdentifier> toRetrieve) {
+		IMendixObject clone = clones.get(src);
+		if (clone != null)
+			return clone.getId();
+		if (isExcluded(Core.getMetaObject(src.getObjectType())))
+			return src;
+
+		clone = Core.instantiate(ctx, src.getObjectType());
+		clones.put(src, clone);
+		toRetrieve.add(src);
+		return clone.getId();
+	}
+
+	private boolean isExcluded(IMetaObject meta) {
+		return skipEntities.contains(meta.getName()) || skipModules.contains(meta.getModuleName());
+	}
+
+	/**
+	 * Clones the objects that refer to the objects of this level through one of the reverse associations. Their
+	 * references are set when their members are copied in the next level.
+	 */
+	private void discoverReverseAssociations(Set<IMendixObject> level, Map<IMendixObject, IMendixObject> next) throws CoreException {
+		for (String fullAssocName : revAssocs) {
+			String[] parts = fullAssocName.split("/");
+
+			if (parts.length != 1 && parts.length != 3) //specifying entity has no meaning anymore, but remain backward compatible.
+			{
+				throw new IllegalArgumentException("Reverse association is not defined correctly, please mention the relation name only: '" + fullAssocName + "'");
+			}
+
+			String assocname = parts.length == 3 ? parts[1] : parts[0]; //support length 3 for backward compatibility
+
+			// parent entity -> objects of this level that are a child in the association
+			Map<String, List<IMendixObject>> children = new HashMap<String, List<IMendixObject>>();
+			for (IMendixObject src : level) {
+				IMetaAssociation massoc = src.getMetaObject().getDeclaredMetaAssociationChild(assocname);
+				if (massoc == null)
+					continue;
+
+				IMetaObject relationParent = massoc.getParent();
+				// if the parent is in the exclude list, we can't clone the parent, and setting the
+				// references to the newly cloned target object will screw up the source data.
+				if (isExcluded(relationParent)) {
+					throw new IllegalArgumentException("A reverse reference has been specified that starts at an entity in the exclude list, this is not possible to clone: '" + fullAssocName + "'");
+				}
+
+				//MWE: what to do with reverse reference sets? -> to avoid spam creating objects on
+				//reverse references, do not support referenceset (todo: we could keep a map of converted guids and reuse that!)
+				if (massoc.getType() == AssociationType.REFERENCESET) {
+					throw new IllegalArgumentException("It is not possible to clone reverse referencesets: '" + fullAssocName + "'");
+				}
+
+				children.computeIfAbsent(relationParent.getName(), p -> new ArrayList<IMendixObject>()).add(src);
+			}
+
+			for (Map.Entry<String, List<IMendixObject>> entry : children.entrySet())
+				for (IMendixObject obj : retrieveParents(entry.getKey(), assocname, entry.getValue()))
+					if (!clones.containsKey(obj.getId()) && !isExcluded(obj.getMetaObject())) {
+						IMendixObject clone = Core.instantiate(ctx, obj.getType());
+						clones.put(obj.getId(), clone);
+						next.put(obj, clone);
+					}
+		}
+	}
+
+	private List<IMendixObject> retrieveParents(String parentEntity, String assocname, List<IMendixObject> srcs) throws CoreException {
+		List<IMendixObject> res = new ArrayList<IMendixObject>();
+		for (int start = 0; start < srcs.size(); start += REVERSE_CHUNKSIZE) {
+			List<IMendixObject> chunk = srcs.subList(start, Math.min(start + REVERSE_CHUNKSIZE, srcs.size()));
+
+			StringBuilder constraint = new StringBuilder();
+			for (int i = 0; i < chunk.size(); i++)
+				constraint.append(i == 0 ? "" : " or ").append(assocname).append(" = $value").append(i);
+
+			var query = Core.createXPathQuery(String.format("//%s[%s]", parentEntity, constraint));
+			for (int i = 0; i < chunk.size(); i++)
+				query.setVariable("value" + i, chunk.get(i));
+			res.addAll(query.execute(ctx));
+		}
+		return res;
+	}
+}
@@ -0,0 +1,177 @@
+package communitycommons;
+
+import com.mendix.core.Core;
+import com.mendix.systemwideinterfaces.core.IContext;
+import communitycommons.proxies.LogNodes;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import system.proxies.FileDocument;
+
+/**
+ * Reads a text file line by line and hands the lines to a handler in batches.
+ *
+ * The file is streamed, so at most 'parallelism' + 1 batches are in memory at any time, regardless of the size of the
+ * file. With a parallelism of 1 the batches are processed in order, on the calling thread and in the context of the
+ * caller. With a higher parallelism the next batch is read while at most 'parallelism' batches are processed on
+ * background threads, each in its own system context.
+ */
+public class LineBatchProcessor {
+
+	public static final String LINES_PARAMETER = "Lines";
+	public static final String FIRST_LINE_NUMBER_PARAMETER = "FirstLineNumber";
+
+	private static final String LOGNODE = LogNodes.CommunityCommons.name();
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	private static final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+		//Default thread factory takes care of setting the proper thread context
+		private final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+		private final AtomicInteger threadnr = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread t = defaultFactory.newThread(runnable);
+			t.setName("CommunityCommons line batch thread " + threadnr.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+
+	});
+
+	public interface ILineBatchHandler {
+
+		/**
+		 * @param lines           The lines of the batch, without line terminators
+		 * @param firstLineNumber The number of the first line of the batch in the file, starting at 1
+		 */
+		void exec(IContext context, List<String> lines, long firstLineNumber) throws Exception;
+
+	}
+
+	private LineBatchProcessor() {
+	}
+
+	/**
+	 * Processes all lines of the file and blocks until all batches are finished. When a batch fails, no new batches are
+	 * started and the first failure is thrown once the running batches are finished.
+	 *
+	 * @param charset     Name of the character set of the file, UTF-8 if empty
+	 * @param batchsize   Number of lines in a batch, the last batch may be smaller
+	 * @param parallelism Number of batches that are processed at the same time
+	 * @return the number of lines that were processed
+	 */
+	public static long process(IContext context, FileDocument file, String charset, int batchsize, int parallelism, ILineBatchHandler handler) throws Exception {
+		if (batchsize < 1 || parallelism < 1)
+			throw new IllegalArgumentException("Batch size and parallelism should be larger than zero");
+
+		final Charset cs = charset == null || charset.trim().isEmpty() ? StandardCharsets.UTF_8 : Charset.forName(charset.trim());
+		final Semaphore workers = new Semaphore(parallelism);
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final AtomicLong processed = new AtomicLong();
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(Core.getFileDocumentContent(context, file.getMendixObject()), cs), READ_BUFFER_SIZE)) {
+			long lineNumber = 0;
+			List<String> batch = new ArrayList<>(batchsize);
+			String line;
+			while (failure.get() == null && (line = reader.readLine()) != null) {
+				// skip the byte order mark, InputStreamReader does not remove it for UTF-8
+				if (lineNumber == 0 && !line.isEmpty() && line.charAt(0) == '\uFEFF')
+					line = line.substring(1);
+				batch.add(line);
+				lineNumber++;
+
+				if (batch.size() == batchsize) {
+					submit(context, handler, batch, lineNumber - batch.size() + 1, parallelism, workers, failure, processed);
+					batch = new ArrayList<>(batchsize);
+				}
+			}
+			if (!batch.isEmpty() && failure.get() == null)
+				submit(context, handler, batch, lineNumber - batch.size() + 1, parallelism, workers, failure, processed);
+		} catch (Exception e) {
+			failure.compareAndSet(null, e);
+		} finally {
+			// wait until the batches that are still being processed are finished
+			workers.acquireUninterruptibly(parallelism);
+		}
+
+		final Throwable e = failure.get();
+		if (e != null) {
+			Logging.error(LOGNODE, "[LineBatchProcessor] Failed to process " + file.getName(context) + " after "
+				+ processed.get() + " lines: " + e.getMessage(), e);
+			if (e instanceof Exception)
+				throw (Exception) e;
+			throw new RuntimeException(e);
+		}
+		Logging.debug(LOGNODE, "[LineBatchProcessor] Processed " + processed.get() + " lines of " + file.getName(context));
+		return processed.get();
+	}
+
+	/**
+	 * Passes every batch to the microflow. The microflow should have a String parameter named
+	 * {@value #LINES_PARAMETER}, which receives the lines of the batch separated by newlines, and a Long parameter
+	 * named {@value #FIRST_LINE_NUMBER_PARAMETER}.
+	 */
+	public static long processWithMicroflow(IContext context, FileDocument file, String charset, int batchsize, int parallelism, final String microflow) throws Exception {
+		if (!Core.getMicroflowNames().contains(microflow))
+			throw new IllegalArgumentException("Microflow not found: " + microflow);
+
+		return process(context, file, charset, batchsize, parallelism, new ILineBatchHandler() {
+
+			@Override
+			public void exec(IContext c, List<String> lines, long firstLineNumber) throws Exception {
+				Map<String, Object> params = new LinkedHashMap<String, Object>();
+				params.put(LINES_PARAMETER, String.join("\n", lines));
+				params.put(FIRST_LINE_NUMBER_PARAMETER, firstLineNumber);
+				Core.microflowCall(microflow).withParams(params).execute(c);
+			}
+
+		});
+	}
+
+	private static void submit(IContext context, ILineBatchHandler handler, List<String> batch, long firstLineNumber,
+		int parallelism, Semaphore workers, AtomicReference<Throwable> failure, AtomicLong processed) throws Exception {
+		final List<String> lines = Collections.unmodifiableList(batch);
+
+		if (parallelism == 1) {
+			handler.exec(context, lines, firstLineNumber);
+			processed.addAndGet(lines.size());
+			return;
+		}
+
+		workers.acquire();
+		if (failure.get() != null) {
+			workers.release();
+			return;
+		}
+		CompletableFuture.runAsync(() -> {
+			try {
+				handler.exec(Core.createSystemContext(), lines, firstLineNumber);
+			} catch (Exception e) {
+				throw new RuntimeException("[LineBatchProcessor] Failed to process lines " + firstLineNumber + " to "
+					+ (firstLineNumber + lines.size() - 1) + ": " + e.getMessage(), e);
+			}
+			processed.addAndGet(lines.size());
+		}, executor).whenComplete((result, e) -> {
+			if (e != null)
+				failure.compareAndSet(null, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+			workers.release();
+		});
+	}
+}
@@ -4,13 +4,17 @@ import com.mendix.core.Core;
 import com.mendix.logging.ILogNode;
 import communitycommons.proxies.LogLevel;
 import communitycommons.proxies.LogNodes;
-import java.util.Date;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Logging {
 
-	private static Map<String, Long> timers = new HashMap<String, Long>();
+	// start times (System.nanoTime) per timer name and thread, so concurrent microflows using the same timer name do
+	// not overwrite each other's start time. The threads are weak keys, so starts of finished threads are dropped
+	private static final Map<String, Map<Thread, Long>> timers = new ConcurrentHashMap<>();
 
 	public static void trace(String lognode, String message) {
 		log(lognode, LogLevel.Trace, message, null);
@@ -68,20 +72,65 @@ public class Logging {
 		}
 	}
 
+	/**
+	 * Logs the time since the timer with the same name was started on this thread and records it in the
+	 * {@link TimerStatistics}. The timer keeps running, so it can be ended again to measure laps, until it is cleared
+	 * with {@link #measureClear}.
+	 *
+	 * A timer that was started on another thread, for example in a task queue, is only used when it is the only
+	 * pending timer with that name. It is taken over, so it is not used again by yet another thread.
+	 *
+	 * @return the duration in milliseconds
+	 */
 	public static Long measureEnd(String timerName, LogLevel loglevel,
 		String message) {
-		Long cur = new Date().getTime();
-		if (!timers.containsKey(timerName)) {
+		long cur = System.nanoTime();
+		Map<Thread, Long> starts = timers.get(timerName);
+		Long start = null;
+		if (starts != null) {
+			synchronized (starts) {
+				start = starts.get(Thread.currentThread());
+				if (start == null && starts.size() == 1) {
+					Iterator<Long> otherStarts = starts.values().iterator();
+					start = otherStarts.next();
+					otherStarts.remove();
+				}
+			}
+		}
+		if (start == null) {
 			throw new IllegalArgumentException(String.format("Timer with key %s not found", timerName));
 		}
-		Long timeTaken = cur - timers.get(timerName);
-		String time = String.format("%d", timeTaken);
-		log(LogNodes.CommunityCommons.name(), loglevel, "Timer " + timerName + " finished in " + time + " ms. " + message, null);
+		long nanosTaken = cur - start;
+		TimerStatistics.record(timerName, nanosTaken);
+
+		Long timeTaken = nanosTaken / 1000000;
+		if (loglevel != null)
+			log(LogNodes.CommunityCommons.name(), loglevel, String.format("Timer %s finished in %d ms. %s", timerName, timeTaken, message), null);
 		return timeTaken;
 	}
 
 	public static void measureStart(String timerName) {
-		timers.put(timerName, new Date().getTime());
+		final long start = System.nanoTime();
+		timers.compute(timerName, (n, starts) -> {
+			if (starts == null)
+				starts = Collections.synchronizedMap(new WeakHashMap<>());
+			starts.put(Thread.currentThread(), start);
+			return starts;
+		});
+	}
+
+	/**
+	 * Stops the timer that was started with this name on this thread, without logging or recording anything.
+	 *
+	 * @return whether the timer was running on this thread
+	 */
+	public static boolean measureClear(String timerName) {
+		final boolean[] cleared = new boolean[1];
+		timers.computeIfPresent(timerName, (n, starts) -> {
+			cleared[0] = starts.remove(Thread.currentThread()) != null;
+			return starts.isEmpty() ? null : starts;
+		});
+		return cleared[0];
 	}
 
 	public static ILogNode createLogNode(String logNode) {
@@ -28,11 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import org.apache.commons.io.IOUtils;
 import org.apache.pdfbox.multipdf.Overlay;
@@ -365,61 +361,16 @@ public class Misc {
 		return Core.microflowCall(microflowName).withParams(params).execute(c);
 	}
 
-	//MWE: based on: http://download.oracle.com/javase/6/docs/api/java/util/concurrent/Executor.html
-	static class MFSerialExecutor {
-
-		private static MFSerialExecutor _instance = new MFSerialExecutor();
-
-		private final AtomicLong tasknr = new AtomicLong();
-		private final ExecutorService executor;
-
-		public static MFSerialExecutor instance() {
-			return _instance;
-		}
-
-		private MFSerialExecutor() {
-			executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
-
-				//Default thread factory takes care of setting the proper thread context
-				private final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
-
-				@Override
-				public Thread newThread(Runnable runnable) {
-					Thread t = defaultFactory.newThread(runnable);
-					t.setPriority(Thread.MIN_PRIORITY);
-					t.setName("CommunityCommons background pool executor thread");
-					return t;
-				}
-
-			});
-		}
-
-		public void execute(final Runnable command) {
-			if (command == null) {
-				throw new NullPointerException("command");
-			}
-
-			final long currenttasknr = tasknr.incrementAndGet();
-			Logging.debug(LOGNODE, "[RunMicroflowAsyncInQueue] Scheduling task #" + currenttasknr);
-
-			executor.submit(new Runnable() {
-				@Override
-				public void run() {
-					Logging.debug(LOGNODE, "[RunMicroflowAsyncInQueue] Running task #" + currenttasknr);
-					try {
-						command.run();
-					} catch (RuntimeException e) {
-						Logging.error(LOGNODE, "[RunMicroflowAsyncInQueue] Execution of task #" + currenttasknr + " failed: " + e.getMessage(), e);
-						throw e; //single thread executor will continue, even if an exception is thrown.
-					}
-					Logging.debug(LOGNODE, "[RunMicroflowAsyncInQueue] Completed task #" + currenttasknr + ". Tasks left: " + (tasknr.get() - currenttasknr));
-				}
-			});
-		}
+	public static Boolean runMicroflowAsyncInQueue(final String microflowName) {
+		return runMicroflowAsyncInQueue(microflowName, TaskQueue.DEFAULT_QUEUE);
 	}
 
-	public static Boolean runMicroflowAsyncInQueue(final String microflowName) {
-		MFSerialExecutor.instance().execute(new Runnable() {
+	/**
+	 * Runs the microflow in the background in the given queue, see {@link TaskQueue}. Unless configured otherwise, a
+	 * queue runs one microflow at a time.
+	 */
+	public static Boolean runMicroflowAsyncInQueue(final String microflowName, String queueName) {
+		TaskQueue.get(queueName).submit(new Runnable() {
 			@Override
 			public void run() {
 				try {
@@ -435,8 +386,13 @@ public class Misc {
 
 	public static Boolean runMicroflowInBackground(final IContext context, final String microflowName,
 		final IMendixObject paramObject) {
+		return runMicroflowInBackground(context, microflowName, paramObject, TaskQueue.DEFAULT_QUEUE);
+	}
+
+	public static Boolean runMicroflowInBackground(final IContext context, final String microflowName,
+		final IMendixObject paramObject, String queueName) {
 
-		MFSerialExecutor.instance().execute(new Runnable() {
+		TaskQueue.get(queueName).submit(new Runnable() {
 
 			@Override
 			public void run() {
@@ -457,79 +413,82 @@ public class Misc {
 		return true;
 	}
 
-	private interface IBatchItemHandler {
-
-		void exec(IContext context, IMendixObject obj) throws Exception;
-
-	}
-
-	private static class BatchState {
-
-		private int state = 0; //-1 = error, 1 = done.
-		private final IBatchItemHandler callback;
-
-		public BatchState(IBatchItemHandler callback) {
-			this.callback = callback;
-		}
-
-		public void setState(int state) {
-			this.state = state;
-		}
-
-		public int getState() {
-			return state;
-		}
-
-		public void handle(IContext context, IMendixObject obj) throws Exception {
-			callback.exec(context, obj);
-		}
+	public static Boolean executeMicroflowInBatches(String xpath, final String microflow, int batchsize, boolean waitUntilFinished, boolean asc) throws CoreException, InterruptedException {
+		return executeMicroflowInBatches(xpath, microflow, batchsize, waitUntilFinished, asc, 1);
 	}
 
-	public static Boolean executeMicroflowInBatches(String xpath, final String microflow, int batchsize, boolean waitUntilFinished, boolean asc) throws CoreException, InterruptedException {
+	/**
+	 * Invokes the microflow for every object of the xpath query. See {@link BatchJob} for how the objects are divided
+	 * over at most 'parallelism' workers; a parallelism of 1 processes the objects in order.
+	 */
+	public static Boolean executeMicroflowInBatches(String xpath, final String microflow, int batchsize, boolean waitUntilFinished, boolean asc, int parallelism) throws CoreException, InterruptedException {
 		Logging.debug(LOGNODE, "[ExecuteInBatches] Starting microflow batch '" + microflow + "...");
 
-		return executeInBatches(xpath, new BatchState(new IBatchItemHandler() {
+		return executeInBatches(xpath, "microflow " + microflow, new BatchJob.IBatchItemHandler() {
 
 			@Override
 			public void exec(IContext context, IMendixObject obj) throws Exception {
 				Core.executeAsync(context, microflow, true, obj).get();
 			}
 
-		}), batchsize, waitUntilFinished, asc);
+		}, batchsize, waitUntilFinished, asc, parallelism);
 	}
 
 	public static Boolean recommitInBatches(String xpath, int batchsize,
 		boolean waitUntilFinished, Boolean asc) throws CoreException, InterruptedException {
+		return recommitInBatches(xpath, batchsize, waitUntilFinished, asc, 1);
+	}
+
+	public static Boolean recommitInBatches(String xpath, int batchsize,
+		boolean waitUntilFinished, Boolean asc, int parallelism) throws CoreException, InterruptedException {
 		Logging.debug(LOGNODE, "[ExecuteInBatches] Starting recommit batch...");
 
-		return executeInBatches(xpath, new BatchState(new IBatchItemHandler() {
+		return executeInBatches(xpath, "recommit", new BatchJob.IBatchItemHandler() {
 
 			@Override
 			public void exec(IContext context, IMendixObject obj) throws Exception {
 				Core.commit(context, obj);
 			}
 
-		}), batchsize, waitUntilFinished, asc);
+		}, batchsize, waitUntilFinished, asc, parallelism);
 	}
 
-	public static Boolean executeInBatches(String xpathRaw, BatchState batchState, int batchsize, boolean waitUntilFinished, boolean asc) throws CoreException, InterruptedException {
-		String xpath = xpathRaw.startsWith("//") ? xpathRaw : "//" + xpathRaw;
+	/**
+	 * Recommits all objects of the xpath query on 'parallelism' threads, each processing its own id range in its own
+	 * transaction. See {@link PartitionedMutation}.
+	 */
+	public static Boolean recommitInPartitions(String xpath, int batchsize, int parallelism, boolean waitUntilFinished) throws InterruptedException {
+		PartitionedMutation job = PartitionedMutation.start("recommit", xpath, PartitionedMutation.Operation.COMMIT, parallelism, batchsize);
 
-		long count = Core.retrieveXPathQueryAggregate(Core.createSystemContext(), "count(" + xpath + ")");
-		int loop = (int) Math.ceil(((float) count) / ((float) batchsize));
+		if (waitUntilFinished) {
+			try {
+				job.await();
+			} catch (ExecutionException e) {
+				Logging.error(LOGNODE, "[PartitionedMutation] Failed to finish " + job + ". Please check the application log for more details.");
+				return false;
+			}
+		}
+		return true;
+	}
 
-		Logging.debug(LOGNODE,
-			"[ExecuteInBatches] Starting batch on ~ " + count + " objects divided over ~ " + loop + " batches. "
-			+ (waitUntilFinished ? "Waiting until the batch has finished..." : "")
-		);
+	/**
+	 * Deletes all objects of the xpath query on 'parallelism' threads, each processing its own id range in its own
+	 * transaction. See {@link PartitionedMutation}.
+	 *
+	 * @param dryRun Only count the objects that would be deleted
+	 * @return the number of objects that were deleted (or would be deleted)
+	 */
+	public static Long deleteInPartitions(String xpath, int batchsize, int parallelism, boolean dryRun) throws InterruptedException, ExecutionException {
+		return PartitionedMutation.start("delete", xpath,
+			dryRun ? PartitionedMutation.Operation.COUNT : PartitionedMutation.Operation.DELETE, parallelism, batchsize).await();
+	}
 
-		executeInBatchesHelper(xpath, batchsize, 0, batchState, count, asc);
+	public static Boolean executeInBatches(String xpath, String description, BatchJob.IBatchItemHandler handler, int batchsize, boolean waitUntilFinished, boolean asc, int parallelism) throws InterruptedException {
+		BatchJob job = BatchJob.start(description, xpath, batchsize, asc, parallelism, handler);
 
 		if (waitUntilFinished) {
-			while (batchState.getState() == 0) {
-				Thread.sleep(5000);
-			}
-			if (batchState.getState() == 1) {
+			Logging.debug(LOGNODE, "[ExecuteInBatches] Waiting until " + job + " has finished...");
+			if (job.await()) {
 				Logging.debug(LOGNODE, "[ExecuteInBatches] Successfully finished batch");
 				return true;
 			}
@@ -540,48 +499,6 @@ public class Misc {
 		return true;
 	}
 
-	static void executeInBatchesHelper(final String xpath, final int batchsize, final long last, final BatchState batchState, final long count, final boolean asc) {
-		MFSerialExecutor.instance().execute(new Runnable() {
-
-			@Override
-			public void run() {
-				try {
-					Thread.sleep(200);
-					IContext c = Core.createSystemContext();
-
-					List<IMendixObject> objects = Core.retrieveXPathQuery(c, xpath + (last > 0 ? "[id " + (asc ? "> " : "< ") + last + "]" : ""),
-						batchsize,
-						0,
-						new HashMap<String, String>() {
-						{
-							put("id", asc ? "asc" : "desc");
-						}
-					}
-					);
-
-					//no new objects found :)
-					if (objects.isEmpty()) {
-						Logging.debug(LOGNODE, "[ExecuteInBatches] Succesfully finished batch on ~" + count + " objects.");
-						batchState.setState(1);
-					} else {
-
-						//process objects
-						for (IMendixObject obj : objects) {
-							batchState.handle(c, obj);
-						}
-
-						//invoke next batch
-						executeInBatchesHelper(xpath, batchsize, objects.get(objects.size() - 1).getId().toLong(), batchState, count, asc);
-					}
-				} catch (Exception e) {
-					batchState.setState(-1);
-					throw new RuntimeException("[ExecuteInBatches] Failed to run in batch: " + e.getMessage(), e);
-				}
-			}
-
-		});
-	}
-
 	/**
 	 * Tests if two objects are equal with throwing unecessary null pointer exceptions.
 	 *
@@ -653,6 +570,22 @@ public class Misc {
 		}
 	}
 
+	public static boolean mergePDFInRounds(IContext context, List<FileDocument> documents, IMendixObject mergedDocument) throws IOException {
+		return mergePDFInRounds(context, documents, mergedDocument, PdfMerger.DEFAULT_DOCUMENTS_PER_ROUND);
+	}
+
+	/**
+	 * Merges the documents like {@link #mergePDF}, but without a limit on the number of documents. Groups of at most
+	 * 'documentsPerRound' documents are merged into temp files, which are merged in the next round, so memory use does
+	 * not grow with the number of documents. See {@link PdfMerger}.
+	 *
+	 * @throws IllegalArgumentException when there are no documents to merge
+	 */
+	public static boolean mergePDFInRounds(IContext context, List<FileDocument> documents, IMendixObject mergedDocument, int documentsPerRound) throws IOException {
+		new PdfMerger(context, documentsPerRound).merge(documents, mergedDocument);
+		return true;
+	}
+
 	/**
 	 * Overlay a generated PDF document with another PDF (containing the company stationary for
 	 * example)
@@ -698,6 +631,16 @@ public class Misc {
 		return true;
 	}
 
+	/**
+	 * Overlays all documents with the same overlay PDF, like {@link #overlayPdf}. The overlay is retrieved once and at
+	 * most 'parallelism' documents are processed at the same time. See {@link PdfOverlay}.
+	 *
+	 * @return the number of documents that were overlaid
+	 */
+	public static long overlayPdfs(IContext context, List<IMendixObject> generatedDocuments, IMendixObject overlayMendixObject, boolean onTopOfContent, int parallelism) throws IOException {
+		return new PdfOverlay(context, generatedDocuments, onTopOfContent).overlay(overlayMendixObject, parallelism);
+	}
+
 	/**
 	 * Get the Cloud Foundry Instance Index (0 for leader and >0 for slave)
 	 *
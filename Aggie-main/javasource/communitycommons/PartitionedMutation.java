@@ -0,0 +1,273 @@
+package communitycommons;
+
+import com.mendix.core.Core;
+import com.mendix.core.CoreException;
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.systemwideinterfaces.core.IMendixObject;
+import communitycommons.proxies.LogNodes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes or recommits all objects of an xpath query on multiple threads.
+ *
+ * Before starting, the id range of the objects is divided into partitions of about {@value #PARTITION_SIZE} objects
+ * (at least one per worker). At most 'parallelism' partitions are processed at the same time, each in its own system
+ * context and transaction, in pages of 'batchsize' objects. When a partition fails, its transaction is rolled back and
+ * no new pages are started; partitions that were already finished stay committed.
+ *
+ * A {@link Operation#COUNT} job runs the same partitions, but only counts the objects. Use it as a dry run.
+ */
+public class PartitionedMutation {
+
+	public static final int PARTITION_SIZE = 10000;
+
+	private static final String LOGNODE = LogNodes.CommunityCommons.name();
+
+	private static final AtomicLong jobnr = new AtomicLong();
+
+	public enum Operation {
+		COUNT,
+		DELETE,
+		COMMIT
+	}
+
+	private final long id;
+	private final String description;
+	private final String xpath;
+	private final Operation operation;
+	private final int parallelism;
+	private final int batchsize;
+
+	private final CompletableFuture<Long> completion = new CompletableFuture<>();
+	private final AtomicLong processed = new AtomicLong();
+	private final AtomicInteger finishedPartitions = new AtomicInteger();
+	private volatile int partitionCount = 0;
+	private volatile long total = -1;
+	private volatile boolean stopped = false;
+
+	private PartitionedMutation(String description, String xpath, Operation operation, int parallelism, int batchsize) {
+		this.id = jobnr.incrementAndGet();
+		this.description = description;
+		this.xpath = xpath.startsWith("//") ? xpath : "//" + xpath;
+		this.operation = operation;
+		this.parallelism = parallelism;
+		this.batchsize = batchsize;
+	}
+
+	/**
+	 * Starts a job in the background.
+	 *
+	 * @param description Name of the job, used in log messages
+	 * @param xpath       Xpath query of the objects to process
+	 * @param operation   What to do with the objects
+	 * @param parallelism Number of partitions that are processed at the same time
+	 * @param batchsize   Number of objects that are retrieved and processed at once
+	 * @return the running job
+	 */
+	public static PartitionedMutation start(String description, String xpath, Operation operation, int parallelism, int batchsize) {
+		if (batchsize < 1 || parallelism < 1)
+			throw new IllegalArgumentException("Batch size and parallelism should be larger than zero");
+
+		final PartitionedMutation job = new PartitionedMutation(description, xpath, operation, parallelism, batchsize);
+		final ExecutorService executor = Executors.newFixedThreadPool(parallelism, createThreadFactory(job.id));
+		job.completion.whenComplete((result, e) -> executor.shutdown());
+
+		try {
+			executor.execute(() -> job.run(executor));
+		} catch (RuntimeException e) {
+			job.completion.completeExceptionally(e);
+			throw e;
+		}
+		return job;
+	}
+
+	private static ThreadFactory createThreadFactory(final long jobId) {
+		return new ThreadFactory() {
+
+			//Default thread factory takes care of setting the proper thread context
+			private final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+			private final AtomicInteger threadnr = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread t = defaultFactory.newThread(runnable);
+				t.setName("CommunityCommons partitioned mutation #" + jobId + " thread " + threadnr.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+
+		};
+	}
+
+	private void run(ExecutorService executor) {
+		try {
+			final List<long[]> partitions = createPartitions(Core.createSystemContext());
+			partitionCount = partitions.size();
+			Logging.info(LOGNODE, "[PartitionedMutation] Starting " + this + " on ~ " + total + " objects divided over "
+				+ partitionCount + " partitions.");
+
+			final List<CompletableFuture<Void>> futures = new ArrayList<>();
+			for (final long[] partition : partitions)
+				futures.add(CompletableFuture.runAsync(() -> processPartition(partition[0], partition[1]), executor)
+					.whenComplete((result, e) -> {
+						if (e != null)
+							stopped = true;
+						Logging.debug(LOGNODE, "[PartitionedMutation] " + this + ": finished partition "
+							+ finishedPartitions.incrementAndGet() + " of " + partitionCount + ", " + processed.get()
+							+ " of ~ " + total + " objects processed.");
+					}));
+
+			// the first failure, if any, is reported after all partitions have finished
+			CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).whenComplete((result, e) -> finish(e));
+		} catch (Throwable e) {
+			finish(e);
+		}
+	}
+
+	/**
+	 * @return inclusive id ranges that together cover all objects of the query
+	 */
+	private List<long[]> createPartitions(IContext context) throws CoreException {
+		final List<long[]> partitions = new ArrayList<>();
+		total = Core.createXPathQuery("count(" + xpath + ")").executeAggregateLong(context);
+		if (total == 0)
+			return partitions;
+
+		final long minId = firstId(context, true);
+		final long maxId = firstId(context, false);
+		final long count = Math.min(Math.max(parallelism, (total + PARTITION_SIZE - 1) / PARTITION_SIZE), maxId - minId + 1);
+		final long width = (maxId - minId) / count + 1;
+		for (long from = minId; from <= maxId; from += width)
+			partitions.add(new long[] { from, Math.min(from + width - 1, maxId) });
+		return partitions;
+	}
+
+	private long firstId(IContext context, boolean asc) throws CoreException {
+		final List<IMendixObject> first = Core.createXPathQuery(xpath)
+			.setAmount(1)
+			.addSort(XPath.ID, asc)
+			.execute(context);
+		return first.isEmpty() ? 0 : first.get(0).getId().toLong();
+	}
+
+	private void processPartition(long from, long to) {
+		final IContext context = Core.createSystemContext();
+		try {
+			if (operation == Operation.COUNT) {
+				processed.addAndGet(Core.createXPathQuery("count(" + xpath + "[id >= $from and id <= $to])")
+					.setVariable("from", from)
+					.setVariable("to", to)
+					.executeAggregateLong(context));
+				return;
+			}
+
+			context.startTransaction();
+			long next = from;
+			while (!stopped && next <= to) {
+				final List<IMendixObject> objects = Core.createXPathQuery(xpath + "[id >= $from and id <= $to]")
+					.setVariable("from", next)
+					.setVariable("to", to)
+					.setAmount(batchsize)
+					.addSort(XPath.ID, true)
+					.execute(context);
+				if (objects.isEmpty())
+					break;
+
+				if (operation == Operation.DELETE)
+					Core.delete(context, objects);
+				else
+					Core.commit(context, objects);
+
+				processed.addAndGet(objects.size());
+				next = objects.get(objects.size() - 1).getId().toLong() + 1;
+			}
+			context.endTransaction();
+		} catch (CoreException | RuntimeException e) {
+			if (context.isInTransaction())
+				context.rollbackTransaction();
+			throw new CompletionException("[PartitionedMutation] Failed to process ids " + from + " to " + to
+				+ " of " + this + ": " + e.getMessage(), e);
+		}
+	}
+
+	private void finish(Throwable e) {
+		if (e != null) {
+			final Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+			Logging.error(LOGNODE, "[PartitionedMutation] Failed to finish " + this + ": " + cause.getMessage(), cause);
+			completion.completeExceptionally(cause);
+		} else {
+			Logging.info(LOGNODE, "[PartitionedMutation] Finished " + this + " on " + processed.get() + " objects.");
+			completion.complete(processed.get());
+		}
+	}
+
+	/**
+	 * Stops the job. Pages that are being processed are finished and committed, no new pages are started.
+	 */
+	public void cancel() {
+		stopped = true;
+	}
+
+	/**
+	 * Blocks until the job has finished.
+	 *
+	 * @return the number of objects that were counted, deleted or committed
+	 * @throws ExecutionException with the first failure, if any
+	 */
+	public long await() throws InterruptedException, ExecutionException {
+		return completion.get();
+	}
+
+	public CompletableFuture<Long> getCompletion() {
+		return completion;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public Operation getOperation() {
+		return operation;
+	}
+
+	public boolean isDone() {
+		return completion.isDone();
+	}
+
+	public long getProcessedCount() {
+		return processed.get();
+	}
+
+	/**
+	 * @return the number of objects at the start of the job, or -1 if it has not been counted yet
+	 */
+	public long getTotalCount() {
+		return total;
+	}
+
+	public int getPartitionCount() {
+		return partitionCount;
+	}
+
+	public int getFinishedPartitionCount() {
+		return finishedPartitions.get();
+	}
+
+	@Override
+	public String toString() {
+		return operation.name().toLowerCase() + " job #" + id + " '" + description + "'";
+	}
+}
@@ -0,0 +1,115 @@
+package communitycommons;
+
+import com.mendix.core.Core;
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.systemwideinterfaces.core.IMendixObject;
+import communitycommons.proxies.LogNodes;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import system.proxies.FileDocument;
+
+/**
+ * Merges any number of PDF documents with a bounded amount of memory, see {@link Misc#mergePDFInRounds}.
+ *
+ * The documents are merged in rounds: every round merges groups of at most 'documentsPerRound' documents into temp
+ * files, which are the input of the next round, until a single file is left. PDFBox buffers the streams of the
+ * documents in temp files as well, and the result is streamed from its temp file into the target document.
+ */
+class PdfMerger {
+
+	static final int DEFAULT_DOCUMENTS_PER_ROUND = 50;
+
+	private static final String LOGNODE = LogNodes.CommunityCommons.name();
+
+	private final IContext context;
+	private final int documentsPerRound;
+	private final File tempDir;
+
+	PdfMerger(IContext context, int documentsPerRound) {
+		if (documentsPerRound < 2)
+			throw new IllegalArgumentException("At least two documents should be merged per round");
+		this.context = context;
+		this.documentsPerRound = documentsPerRound;
+		this.tempDir = Core.getConfiguration().getTempPath();
+	}
+
+	void merge(List<FileDocument> documents, IMendixObject mergedDocument) throws IOException {
+		if (documents.isEmpty())
+			throw new IllegalArgumentException("At least one document should be merged");
+
+		List<File> files = new ArrayList<>();
+		// the output of the current round, kept here so it is cleaned up as well when the round fails
+		List<File> next = new ArrayList<>();
+		try {
+			// the first round reads the documents themselves, so they are not copied to disk first
+			for (int start = 0; start < documents.size(); start += documentsPerRound)
+				files.add(mergeDocuments(documents.subList(start, Math.min(start + documentsPerRound, documents.size()))));
+
+			int round = 1;
+			while (files.size() > 1) {
+				round++;
+				Logging.debug(LOGNODE, "[PdfMerger] Merging " + files.size() + " intermediate files in round " + round);
+				for (int start = 0; start < files.size(); start += documentsPerRound) {
+					List<File> group = files.subList(start, Math.min(start + documentsPerRound, files.size()));
+					next.add(mergeFiles(group));
+					delete(group);
+				}
+				files = next;
+				next = new ArrayList<>();
+			}
+
+			try (InputStream merged = Files.newInputStream(files.get(0).toPath())) {
+				Core.storeFileDocumentContent(context, mergedDocument, merged);
+			}
+		} finally {
+			delete(files);
+			delete(next);
+		}
+	}
+
+	private File mergeDocuments(List<FileDocument> group) throws IOException {
+		final PDFMergerUtility merger = new PDFMergerUtility();
+		final List<InputStream> sources = new ArrayList<>();
+		try {
+			for (FileDocument file : group)
+				sources.add(Core.getFileDocumentContent(context, file.getMendixObject()));
+			merger.addSources(sources);
+			return mergeInto(merger);
+		} finally { // the merger reads the sources while merging, so they are closed afterwards
+			for (InputStream is : sources)
+				is.close();
+		}
+	}
+
+	private File mergeFiles(List<File> group) throws IOException {
+		final PDFMergerUtility merger = new PDFMergerUtility();
+		for (File file : group)
+			merger.addSource(file);
+		return mergeInto(merger);
+	}
+
+	private File mergeInto(PDFMergerUtility merger) throws IOException {
+		final Path target = Files.createTempFile(tempDir.toPath(), "CommunityCommons_merge_", ".pdf");
+		try {
+			merger.setDestinationFileName(target.toString());
+			merger.mergeDocuments(MemoryUsageSetting.setupTempFileOnly().setTempDir(tempDir));
+			return target.toFile();
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(target);
+			throw e;
+		}
+	}
+
+	private static void delete(List<File> files) {
+		for (File file : files)
+			if (file.exists() && !file.delete())
+				Logging.warn(LOGNODE, "[PdfMerger] Failed to delete temp file " + file.getAbsolutePath());
+	}
+}
@@ -0,0 +1,231 @@
+package communitycommons;
+
+import com.mendix.core.Core;
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.systemwideinterfaces.core.IMendixObject;
+import communitycommons.proxies.LogNodes;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.Overlay;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+/**
+ * Overlays a list of PDF documents with the same overlay PDF, see {@link Misc#overlayPdfs}.
+ *
+ * The overlay is copied to a temp file once and parsed once per worker; PDDocuments are not thread safe, so workers do
+ * not share it. At most 'parallelism' workers take the next document from the list, overlay it and save the result to
+ * a temp file, until all documents are done. Every document is loaded with temp file buffering, so no copy of a
+ * document is held in memory.
+ *
+ * The results are stored into the documents on the calling thread, in the context of the caller: the documents are
+ * usually created in the transaction of the caller, which workers in their own context would have to wait for. The
+ * workers only read the content of the documents, in a system context.
+ */
+class PdfOverlay {
+
+	private static final String LOGNODE = LogNodes.CommunityCommons.name();
+
+	// marks that a worker has finished, there are no more results of that worker
+	private static final Overlaid WORKER_DONE = new Overlaid(null, null);
+
+	private final IContext context;
+	private final List<IMendixObject> documents;
+	private final Overlay.Position position;
+	private final File tempDir;
+
+	private final AtomicInteger next = new AtomicInteger();
+	private final AtomicInteger processed = new AtomicInteger();
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+	PdfOverlay(IContext context, List<IMendixObject> documents, boolean onTopOfContent) {
+		this.context = context;
+		this.documents = documents;
+		this.position = onTopOfContent ? Overlay.Position.FOREGROUND : Overlay.Position.BACKGROUND;
+		this.tempDir = Core.getConfiguration().getTempPath();
+	}
+
+	/**
+	 * @return the number of documents that were overlaid
+	 */
+	int overlay(IMendixObject overlayDocument, int parallelism) throws IOException {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("Parallelism should be larger than zero");
+
+		final Path overlayFile = Files.createTempFile(tempDir.toPath(), "CommunityCommons_overlay_", ".pdf");
+		try {
+			try (InputStream content = Core.getFileDocumentContent(context, overlayDocument)) {
+				Files.copy(content, overlayFile, StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			final int workers = Math.min(parallelism, documents.size());
+			if (workers <= 1)
+				runOnCallingThread(overlayFile.toFile());
+			else
+				runWorkers(workers, overlayFile.toFile());
+		} finally {
+			Files.deleteIfExists(overlayFile);
+		}
+
+		final Throwable e = failure.get();
+		if (e != null) {
+			Logging.error(LOGNODE, "[PdfOverlay] Failed after " + processed.get() + " of " + documents.size() + " documents: " + e.getMessage(), e);
+			if (e instanceof IOException)
+				throw (IOException) e;
+			if (e instanceof RuntimeException)
+				throw (RuntimeException) e;
+			throw new RuntimeException(e);
+		}
+		Logging.debug(LOGNODE, "[PdfOverlay] Overlaid " + processed.get() + " documents");
+		return processed.get();
+	}
+
+	private void runOnCallingThread(File overlayFile) {
+		try (PDDocument overlayDoc = loadOverlay(overlayFile)) {
+			for (int index = 0; failure.get() == null && index < documents.size(); index++)
+				store(overlayToFile(context, documents.get(index), overlayDoc));
+		} catch (IOException | RuntimeException e) {
+			failure.compareAndSet(null, e);
+		}
+	}
+
+	private void runWorkers(int workers, File overlayFile) {
+		final ExecutorService executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+
+			//Default thread factory takes care of setting the proper thread context
+			private final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+			private final AtomicInteger threadnr = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread t = defaultFactory.newThread(runnable);
+				t.setName("CommunityCommons PDF overlay thread " + threadnr.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+
+		});
+
+		// bounded, so workers wait for the calling thread instead of filling the temp directory
+		final BlockingQueue<Overlaid> results = new ArrayBlockingQueue<>(workers);
+		try {
+			for (int i = 0; i < workers; i++)
+				executor.execute(() -> work(Core.createSystemContext(), overlayFile, results));
+
+			int running = workers;
+			while (running > 0) {
+				final Overlaid result = results.take();
+				if (result == WORKER_DONE)
+					running--;
+				else
+					store(result);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failure.compareAndSet(null, e);
+			executor.shutdownNow();
+			for (Overlaid result : results)
+				if (result != WORKER_DONE)
+					delete(result.file);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private void work(IContext c, File overlayFile, BlockingQueue<Overlaid> results) {
+		try (PDDocument overlayDoc = loadOverlay(overlayFile)) {
+			int index;
+			while (failure.get() == null && (index = next.getAndIncrement()) < documents.size()) {
+				final Overlaid result = overlayToFile(c, documents.get(index), overlayDoc);
+				try {
+					results.put(result);
+				} catch (InterruptedException e) {
+					delete(result.file);
+					throw e;
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			failure.compareAndSet(null, e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failure.compareAndSet(null, e);
+		} finally {
+			try {
+				results.put(WORKER_DONE);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private PDDocument loadOverlay(File overlayFile) throws IOException {
+		return PDDocument.load(overlayFile, MemoryUsageSetting.setupTempFileOnly().setTempDir(tempDir));
+	}
+
+	private Overlaid overlayToFile(IContext c, IMendixObject document, PDDocument overlayDoc) throws IOException {
+		final Path result = Files.createTempFile(tempDir.toPath(), "CommunityCommons_overlaid_", ".pdf");
+		try (InputStream content = Core.getFileDocumentContent(c, document);
+			PDDocument inputDoc = PDDocument.load(content, MemoryUsageSetting.setupTempFileOnly().setTempDir(tempDir))) {
+			// Overlay.close() would close the shared overlay document, so the overlay itself is not closed
+			Overlay overlay = new Overlay();
+			overlay.setInputPDF(inputDoc);
+			overlay.setDefaultOverlayPDF(overlayDoc);
+			overlay.setOverlayPosition(position);
+			overlay.overlay(new HashMap<>()).save(result.toFile());
+			return new Overlaid(document, result);
+		} catch (IOException | RuntimeException e) {
+			delete(result);
+			throw new IOException("Failed to overlay document " + document.getId() + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Stores the overlaid file into its document, in the context of the caller. Once a document failed, the results
+	 * of the other documents are only cleaned up.
+	 */
+	private void store(Overlaid result) {
+		try {
+			if (failure.get() != null)
+				return;
+			try (InputStream overlaidContent = Files.newInputStream(result.file)) {
+				Core.storeFileDocumentContent(context, result.document, overlaidContent);
+			}
+			processed.incrementAndGet();
+		} catch (IOException | RuntimeException e) {
+			failure.compareAndSet(null, new IOException("Failed to store overlaid document " + result.document.getId() + ": " + e.getMessage(), e));
+		} finally {
+			delete(result.file);
+		}
+	}
+
+	private static void delete(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			Logging.warn(LOGNODE, "[PdfOverlay] Failed to delete temp file " + file + ": " + e.getMessage());
+		}
+	}
+
+	private static final class Overlaid {
+		private final IMendixObject document;
+		private final Path file;
+
+		Overlaid(IMendixObject document, Path file) {
+			this.document = document;
+			this.file = file;
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package communitycommons;
+
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.systemwideinterfaces.core.IMendixObject;
+import communitycommons.proxies.LogNodes;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Thread safe registry of proxy classes and proxy factories per entity. A factory is a direct call to the generated
+ * static 'initialize' method of the proxy class, created once per entity with LambdaMetafactory, so creating a proxy
+ * costs no more than calling 'initialize' directly.
+ */
+final class ProxyFactories {
+
+	private static final String LOGNODE = LogNodes.CommunityCommons.name();
+
+	private static final Map<String, Class<?>> proxyClasses = new ConcurrentHashMap<>();
+	private static final Map<String, BiFunction<IContext, IMendixObject, Object>> factories = new ConcurrentHashMap<>();
+
+	private ProxyFactories() {
+	}
+
+	static Class<?> getProxyClass(String entityName) {
+		return proxyClasses.computeIfAbsent(entityName, ProxyFactories::findProxyClass);
+	}
+
+	static BiFunction<IContext, IMendixObject, Object> getFactory(String entityName) {
+		return factories.computeIfAbsent(entityName, e -> createFactory(getProxyClass(e)));
+	}
+
+	private static Class<?> findProxyClass(String entityName) {
+		String[] parts = entityName.split("\\.");
+		try {
+			return Class.forName(parts[0].toLowerCase() + ".proxies." + parts[1]);
+		} catch (ClassNotFoundException e) {
+			throw new RuntimeException("Cannot find class for entity: " + entityName + ": " + e.getMessage(), e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static BiFunction<IContext, IMendixObject, Object> createFactory(Class<?> proxyClass) {
+		final MethodHandle initialize;
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			initialize = lookup.unreflect(proxyClass.getMethod("initialize", IContext.class, IMendixObject.class));
+			try {
+				CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(BiFunction.class),
+					MethodType.methodType(Object.class, Object.class, Object.class), initialize, initialize.type());
+				return (BiFunction<IContext, IMendixObject, Object>) site.getTarget().invoke();
+			} catch (Throwable e) {
+				// for example when the proxy class is not visible from this class loader, use the method handle itself
+				Logging.debug(LOGNODE, "[ProxyFactories] Using method handle for " + proxyClass.getName() + ": " + e.getMessage());
+			}
+		} catch (ReflectiveOperationException e) {
+			throw new RuntimeException("Cannot find initialize method of proxy class " + proxyClass.getName() + ": " + e.getMessage(), e);
+		}
+
+		return (context, object) -> {
+			try {
+				return initialize.invoke(context, object);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new RuntimeException(e);
+			}
+		};
+	}
+}
@@ -12,9 +12,10 @@ import static communitycommons.proxies.SanitizerPolicy.LINKS;
 import static communitycommons.proxies.SanitizerPolicy.STYLES;
 import static communitycommons.proxies.SanitizerPolicy.TABLES;
 
-import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
@@ -35,7 +36,9 @@ import javax.swing.text.html.HTML;
 import javax.swing.text.html.HTMLEditorKit;
 import javax.swing.text.html.parser.ParserDelegator;
 
+import org.apache.commons.codec.binary.Base64InputStream;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CharSequenceInputStream;
 import org.apache.commons.text.StringEscapeUtils;
 import org.owasp.html.PolicyFactory;
 import org.owasp.html.Sanitizers;
@@ -64,18 +67,56 @@ public class StringUtils {
 
 	public static final String HASH_ALGORITHM = "SHA-256";
 
+	private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+	// looking up a MessageDigest is relatively expensive, digest() resets it for the next use
+	private static final ThreadLocal<MessageDigest> HASH_DIGEST = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	});
+
 	public static String hash(String value, int length) throws NoSuchAlgorithmException, DigestException {
 		byte[] inBytes = value.getBytes(StandardCharsets.UTF_8);
 		byte[] outBytes = new byte[length];
 
-		MessageDigest alg = MessageDigest.getInstance(HASH_ALGORITHM);
+		MessageDigest alg = HASH_DIGEST.get();
+		alg.reset();
 		alg.update(inBytes);
 
 		alg.digest(outBytes, 0, length);
 
+		return toHex(outBytes);
+	}
+
+	/**
+	 * Computes the {@value #HASH_ALGORITHM} hash of the contents of a file, reading it in chunks.
+	 *
+	 * @return the hash as hexadecimal string
+	 */
+	public static String hashFile(IContext context, FileDocument file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("Source file is null");
+		}
+
+		MessageDigest alg = HASH_DIGEST.get();
+		alg.reset();
+		try (InputStream f = Core.getFileDocumentContent(context, file.getMendixObject())) {
+			byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+			int read;
+			while ((read = f.read(buffer)) != -1) {
+				alg.update(buffer, 0, read);
+			}
+		}
+		return toHex(alg.digest());
+	}
+
+	private static String toHex(byte[] bytes) {
 		StringBuilder hexString = new StringBuilder();
-		for (int i = 0; i < outBytes.length; i++) {
-			String hex = Integer.toHexString(0xff & outBytes[i]);
+		for (int i = 0; i < bytes.length; i++) {
+			String hex = Integer.toHexString(0xff & bytes[i]);
 			if (hex.length() == 1) {
 				hexString.append('0');
 			}
@@ -121,20 +162,24 @@ public class StringUtils {
 
 	public static String substituteTemplate(final IContext context, String template,
 											final IMendixObject substitute, final boolean HTMLEncode, final String datetimeformat) {
-		return regexReplaceAll(template, "\\{(@)?([\\w./]+)\\}", (MatchResult match) -> {
-			String value;
-			String path = match.group(2);
-			if (match.group(1) != null) {
-				value = String.valueOf(Core.getConfiguration().getConstantValue(path));
-			} else {
-				try {
-					value = ORM.getValueOfPath(context, substitute, path, datetimeformat);
-				} catch (Exception e) {
-					throw new RuntimeException(e);
-				}
-			}
-			return HTMLEncode ? HTMLEncode(value) : value;
-		});
+		try {
+			return CompiledTemplate.compile(template).render(context, substitute, HTMLEncode, datetimeformat);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Same as {@link #substituteTemplate}, for many objects at once. Objects referred to by the template are
+	 * retrieved once for all substitutes.
+	 */
+	public static List<String> substituteTemplates(final IContext context, String template,
+											final List<IMendixObject> substitutes, final boolean HTMLEncode, final String datetimeformat) {
+		try {
+			return CompiledTemplate.compile(template).renderAll(context, substitutes, HTMLEncode, datetimeformat);
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
 	}
 
 	public static String regexReplaceAll(String source, String regexString, Function<MatchResult, String> replaceFunction) {
@@ -180,10 +225,44 @@ public class StringUtils {
 			throw new IllegalArgumentException("Source data is null");
 		}
 
-		byte[] decoded = Base64.getDecoder().decode(encoded.getBytes());
+		// decode while storing, instead of decoding the complete file in memory first
+		try (InputStream decoded = Base64.getDecoder().wrap(CharSequenceInputStream.builder()
+			.setCharSequence(encoded)
+			.setCharset(StandardCharsets.ISO_8859_1)
+			.setBufferSize(STREAM_BUFFER_SIZE)
+			.get())) {
+			Core.storeFileDocumentContent(context, targetFile.getMendixObject(), decoded);
+		}
+	}
+
+	/**
+	 * Decodes the base64 contents of one file into another file, without loading either file in memory. Line breaks
+	 * in the source file, such as a trailing newline, are ignored.
+	 */
+	public static void base64DecodeFileToFile(IContext context, FileDocument sourceFile, FileDocument targetFile) throws IOException {
+		if (sourceFile == null || targetFile == null) {
+			throw new IllegalArgumentException("Source or target file is null");
+		}
+
+		try (InputStream decoded = Base64.getMimeDecoder().wrap(Core.getFileDocumentContent(context, sourceFile.getMendixObject()))) {
+			Core.storeFileDocumentContent(context, targetFile.getMendixObject(), decoded);
+		}
+	}
+
+	/**
+	 * Encodes the contents of one file as base64 into another file, without loading either file in memory.
+	 */
+	public static void base64EncodeFileToFile(IContext context, FileDocument sourceFile, FileDocument targetFile) throws IOException {
+		if (sourceFile == null || targetFile == null) {
+			throw new IllegalArgumentException("Source or target file is null");
+		}
+		if (!sourceFile.getHasContents()) {
+			throw new IllegalArgumentException("Source file has no contents!");
+		}
 
-		try (ByteArrayInputStream bais = new ByteArrayInputStream(decoded)) {
-			Core.storeFileDocumentContent(context, targetFile.getMendixObject(), bais);
+		// no line separators, like Base64.getEncoder()
+		try (InputStream encoded = new Base64InputStream(Core.getFileDocumentContent(context, sourceFile.getMendixObject()), true, 0, null)) {
+			Core.storeFileDocumentContent(context, targetFile.getMendixObject(), encoded);
 		}
 	}
 
@@ -202,9 +281,13 @@ public class StringUtils {
 			throw new IllegalArgumentException("Source file has no contents!");
 		}
 
-		try (InputStream f = Core.getFileDocumentContent(context, file.getMendixObject())) {
-			return Base64.getEncoder().encodeToString(IOUtils.toByteArray(f));
+		// encode while reading, so only the encoded result is kept in memory
+		ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+		try (InputStream f = Core.getFileDocumentContent(context, file.getMendixObject());
+			 OutputStream out = Base64.getEncoder().wrap(encoded)) {
+			IOUtils.copy(f, out, STREAM_BUFFER_SIZE);
 		}
+		return encoded.toString(StandardCharsets.ISO_8859_1);
 	}
 
 	public static String stringFromFile(IContext context, FileDocument source) throws IOException {
@@ -442,6 +525,32 @@ public class StringUtils {
 		}
 	}
 
+	/**
+	 * Computes the HMAC-SHA256 of the contents of a file, reading it in chunks.
+	 *
+	 * @return the HMAC as hexadecimal string
+	 */
+	public static String generateHmacSha256File(IContext context, String key, FileDocument file) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("Source file is null");
+		}
+
+		try (InputStream f = Core.getFileDocumentContent(context, file.getMendixObject())) {
+			SecretKeySpec secretKey = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+			Mac mac = Mac.getInstance("HmacSHA256");
+			mac.init(secretKey);
+
+			byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+			int read;
+			while ((read = f.read(buffer)) != -1) {
+				mac.update(buffer, 0, read);
+			}
+			return toHex(mac.doFinal());
+		} catch (InvalidKeyException | NoSuchAlgorithmException e) {
+			throw new RuntimeException("CommunityCommons::generateHmacSha256File::Unable to encode: " + e.getMessage(), e);
+		}
+	}
+
 	public static String generateHmacSha256Hash(String key, String valueToEncrypt) {
 		try {
 			return Base64.getEncoder().encodeToString(generateHmacSha256Bytes(key, valueToEncrypt));
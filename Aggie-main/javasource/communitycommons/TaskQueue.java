@@ -0,0 +1,320 @@
+package communitycommons;
+
+import communitycommons.proxies.LogNodes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Named queue for background tasks. Every queue has its own workers, so a slow task in one queue does not hold up the
+ * tasks in other queues.
+ *
+ * A queue runs at most 'concurrency' tasks at the same time, tasks with a higher priority first and tasks with the same
+ * priority in submission order. At most 'capacity' tasks can wait in the queue; when it is full, submitting either
+ * blocks until there is room again or is rejected, depending on the {@link OverflowPolicy}.
+ *
+ * Queues that are not configured explicitly run one task at a time, just like the single background thread that was
+ * used for all tasks before.
+ */
+public class TaskQueue {
+
+	public static final String DEFAULT_QUEUE = "CommunityCommons";
+
+	private static final String LOGNODE = LogNodes.CommunityCommons.name();
+
+	private static final Map<String, TaskQueue> queues = new ConcurrentHashMap<>();
+
+	public enum OverflowPolicy {
+		/**
+		 * Submitting blocks until there is room in the queue
+		 */
+		BLOCK,
+		/**
+		 * Submitting throws a RejectedExecutionException
+		 */
+		REJECT
+	}
+
+	private final String name;
+	private final int concurrency;
+	private final int capacity;
+	private final OverflowPolicy overflowPolicy;
+	private final boolean virtualThreads;
+	private final ThreadPoolExecutor executor;
+	private final Semaphore room;
+
+	private final AtomicLong tasknr = new AtomicLong();
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicLong started = new AtomicLong();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong totalWaitMillis = new AtomicLong();
+	private final AtomicLong maxWaitMillis = new AtomicLong();
+	private final AtomicLong totalRunMillis = new AtomicLong();
+
+	private TaskQueue(String name, int concurrency, int capacity, OverflowPolicy overflowPolicy, boolean virtualThreads) {
+		if (concurrency < 1 || capacity < 1)
+			throw new IllegalArgumentException("Concurrency and capacity of queue '" + name + "' should be larger than zero");
+
+		this.name = name;
+		this.concurrency = concurrency;
+		this.capacity = capacity;
+		this.overflowPolicy = overflowPolicy;
+		this.room = new Semaphore(capacity);
+
+		ThreadFactory threadFactory = virtualThreads ? createVirtualThreadFactory(name) : null;
+		if (virtualThreads && threadFactory == null)
+			Logging.warn(LOGNODE, "[TaskQueue] Virtual threads are not available on this Java version, queue '" + name + "' uses platform threads.");
+		this.virtualThreads = threadFactory != null;
+
+		executor = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+			new PriorityBlockingQueue<Runnable>(), threadFactory != null ? threadFactory : createThreadFactory(name));
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * @return the queue with the given name, which is created with a concurrency of 1 if it does not exist yet
+	 */
+	public static TaskQueue get(String name) {
+		return queues.computeIfAbsent(name, n -> new TaskQueue(n, 1, Integer.MAX_VALUE, OverflowPolicy.BLOCK, false));
+	}
+
+	/**
+	 * (Re)configures a queue. If the queue already exists, the tasks that were submitted before are still executed
+	 * with the old configuration.
+	 *
+	 * @param name           Name of the queue
+	 * @param concurrency    Maximum number of tasks that run at the same time
+	 * @param capacity       Maximum number of tasks waiting in the queue
+	 * @param overflowPolicy What to do when a task is submitted to a full queue
+	 * @param virtualThreads Whether to run the tasks on virtual threads (Java 21+). Falls back to platform threads
+	 *                       when not available.
+	 * @return the new queue
+	 */
+	public static synchronized TaskQueue configure(String name, int concurrency, int capacity, OverflowPolicy overflowPolicy, boolean virtualThreads) {
+		TaskQueue queue = new TaskQueue(name, concurrency, capacity, overflowPolicy, virtualThreads);
+		TaskQueue previous = queues.put(name, queue);
+		if (previous != null)
+			previous.executor.shutdown();
+		Logging.debug(LOGNODE, "[TaskQueue] Configured " + queue);
+		return queue;
+	}
+
+	public static Collection<TaskQueue> getQueues() {
+		return Collections.unmodifiableCollection(queues.values());
+	}
+
+	public Future<?> submit(Runnable command) {
+		return submit(command, 0);
+	}
+
+	/**
+	 * Submits a task. Tasks with a higher priority run before tasks with a lower priority that are still waiting.
+	 *
+	 * @throws RejectedExecutionException if the queue is full and the overflow policy is {@link OverflowPolicy#REJECT}
+	 */
+	public Future<?> submit(final Runnable command, int priority) {
+		if (command == null) {
+			throw new NullPointerException("command");
+		}
+
+		if (overflowPolicy == OverflowPolicy.REJECT) {
+			if (!room.tryAcquire()) {
+				rejected.incrementAndGet();
+				throw new RejectedExecutionException("Queue '" + name + "' is full (" + capacity + " tasks waiting)");
+			}
+		} else {
+			room.acquireUninterruptibly();
+		}
+
+		final QueuedTask task = new QueuedTask(command, priority, tasknr.incrementAndGet());
+		Logging.debug(LOGNODE, "[RunMicroflowAsyncInQueue] Scheduling task #" + task.tasknr + " in queue '" + name + "'");
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.leaveQueue();
+			rejected.incrementAndGet();
+			throw e;
+		}
+		return task;
+	}
+
+	private final class QueuedTask extends FutureTask<Object> implements Comparable<QueuedTask> {
+
+		private final int priority;
+		private final long tasknr;
+		private final long enqueuedAt = System.currentTimeMillis();
+		private final AtomicBoolean inQueue = new AtomicBoolean(true);
+
+		QueuedTask(final Runnable command, int priority, long tasknr) {
+			super(command, null);
+			this.priority = priority;
+			this.tasknr = tasknr;
+		}
+
+		void leaveQueue() {
+			if (inQueue.compareAndSet(true, false))
+				room.release();
+		}
+
+		@Override
+		public void run() {
+			leaveQueue();
+			long start = System.currentTimeMillis();
+			long waited = start - enqueuedAt;
+			started.incrementAndGet();
+			totalWaitMillis.addAndGet(waited);
+			maxWaitMillis.accumulateAndGet(waited, Math::max);
+
+			Logging.debug(LOGNODE, "[RunMicroflowAsyncInQueue] Running task #" + tasknr + " in queue '" + name + "'");
+			running.incrementAndGet();
+			try {
+				super.run();
+			} finally {
+				running.decrementAndGet();
+				totalRunMillis.addAndGet(System.currentTimeMillis() - start);
+			}
+		}
+
+		@Override
+		protected void done() {
+			// also called when the task is cancelled while it is still waiting
+			leaveQueue();
+		}
+
+		@Override
+		protected void setException(Throwable e) {
+			failed.incrementAndGet();
+			Logging.error(LOGNODE, "[RunMicroflowAsyncInQueue] Execution of task #" + tasknr + " in queue '" + name + "' failed: " + e.getMessage(), e);
+			super.setException(e);
+		}
+
+		@Override
+		protected void set(Object result) {
+			completed.incrementAndGet();
+			Logging.debug(LOGNODE, "[RunMicroflowAsyncInQueue] Completed task #" + tasknr + " in queue '" + name + "'. Tasks left: " + getQueueDepth());
+			super.set(result);
+		}
+
+		@Override
+		public int compareTo(QueuedTask other) {
+			if (priority != other.priority)
+				return Integer.compare(other.priority, priority);
+			return Long.compare(tasknr, other.tasknr);
+		}
+	}
+
+	private static ThreadFactory createThreadFactory(final String name) {
+		return new ThreadFactory() {
+
+			//Default thread factory takes care of setting the proper thread context
+			private final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread t = defaultFactory.newThread(runnable);
+				t.setPriority(Thread.MIN_PRIORITY);
+				t.setName(DEFAULT_QUEUE.equals(name)
+					? "CommunityCommons background pool executor thread"
+					: "CommunityCommons queue '" + name + "' executor thread");
+				return t;
+			}
+
+		};
+	}
+
+	/**
+	 * Thread.ofVirtual() is only available as of Java 21, so it is looked up reflectively.
+	 */
+	private static ThreadFactory createVirtualThreadFactory(String name) {
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "CommunityCommons queue '" + name + "' virtual thread ", 0L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * @return the number of tasks waiting to be started
+	 */
+	public int getQueueDepth() {
+		return executor.getQueue().size();
+	}
+
+	public int getRunningCount() {
+		return running.get();
+	}
+
+	public long getCompletedCount() {
+		return completed.get();
+	}
+
+	public long getFailedCount() {
+		return failed.get();
+	}
+
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	/**
+	 * @return the average time tasks waited in the queue before they were started
+	 */
+	public long getAverageWaitMillis() {
+		long count = started.get();
+		return count == 0 ? 0 : totalWaitMillis.get() / count;
+	}
+
+	public long getMaxWaitMillis() {
+		return maxWaitMillis.get();
+	}
+
+	public long getAverageRunMillis() {
+		long finished = completed.get() + failed.get();
+		return finished == 0 ? 0 : totalRunMillis.get() / finished;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("queue '%s' (concurrency %d, %s threads): %d waiting, %d running, %d completed, %d failed, %d rejected, avg wait %d ms, max wait %d ms, avg run %d ms",
+			name, concurrency, virtualThreads ? "virtual" : "platform", getQueueDepth(), getRunningCount(),
+			getCompletedCount(), getFailedCount(), getRejectedCount(), getAverageWaitMillis(), getMaxWaitMillis(), getAverageRunMillis());
+	}
+}
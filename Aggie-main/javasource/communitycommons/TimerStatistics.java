@@ -0,0 +1,198 @@
+package communitycommons;
+
+import communitycommons.proxies.LogLevel;
+import communitycommons.proxies.LogNodes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histograms per timer name, filled by {@link Logging#measureEnd}.
+ *
+ * Recording is lock free: a duration is counted in one of a fixed set of buckets, 8 per power of two nanoseconds, so
+ * percentiles are accurate to about 12%. The maximum is exact.
+ */
+public class TimerStatistics {
+
+	private static final String LOGNODE = LogNodes.CommunityCommons.name();
+
+	private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+	private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread t = Executors.defaultThreadFactory().newThread(runnable);
+		t.setName("CommunityCommons timer statistics thread");
+		t.setDaemon(true);
+		return t;
+	});
+	private static ScheduledFuture<?> periodicDump;
+
+	private TimerStatistics() {
+	}
+
+	static void record(String timerName, long nanos) {
+		histograms.computeIfAbsent(timerName, n -> new Histogram()).record(nanos);
+	}
+
+	/**
+	 * @return the statistics of all timers, by name
+	 */
+	public static Map<String, Snapshot> getSnapshots(boolean reset) {
+		Map<String, Snapshot> res = new TreeMap<>();
+		for (Map.Entry<String, Histogram> entry : histograms.entrySet())
+			res.put(entry.getKey(), entry.getValue().snapshot(reset));
+		return res;
+	}
+
+	/**
+	 * Logs one line per timer that recorded anything since the previous reset.
+	 *
+	 * @return the lines that were logged
+	 */
+	public static List<String> dump(LogLevel loglevel, boolean reset) {
+		List<String> lines = new ArrayList<>();
+		for (Map.Entry<String, Snapshot> entry : getSnapshots(reset).entrySet()) {
+			if (entry.getValue().getCount() == 0)
+				continue;
+			String line = "Timer " + entry.getKey() + ": " + entry.getValue();
+			Logging.log(LOGNODE, loglevel == null ? LogLevel.Info : loglevel, line, null);
+			lines.add(line);
+		}
+		return Collections.unmodifiableList(lines);
+	}
+
+	/**
+	 * Dumps and resets the statistics every interval. Replaces a previously started periodic dump; an interval of 0
+	 * stops it.
+	 */
+	public static synchronized void dumpPeriodically(long intervalSeconds, LogLevel loglevel) {
+		if (periodicDump != null)
+			periodicDump.cancel(false);
+		periodicDump = intervalSeconds > 0
+			? scheduler.scheduleAtFixedRate(() -> dump(loglevel, true), intervalSeconds, intervalSeconds, TimeUnit.SECONDS)
+			: null;
+	}
+
+	static final class Histogram {
+		private static final int SUB_BUCKETS = 8;
+		private static final int SUB_BUCKET_BITS = 3;
+
+		private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BUCKET_BITS) * SUB_BUCKETS);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong total = new AtomicLong();
+		private final AtomicLong max = new AtomicLong();
+
+		void record(long nanos) {
+			long value = Math.max(0, nanos);
+			buckets.incrementAndGet(bucketOf(value));
+			count.incrementAndGet();
+			total.addAndGet(value);
+			max.accumulateAndGet(value, Math::max);
+		}
+
+		private static int bucketOf(long value) {
+			if (value < SUB_BUCKETS)
+				return (int) value;
+			int exponent = 63 - Long.numberOfLeadingZeros(value);
+			int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+			return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+		}
+
+		/**
+		 * @return the highest value that is counted in the bucket
+		 */
+		private static long upperBoundOf(int bucket) {
+			if (bucket < SUB_BUCKETS)
+				return bucket;
+			int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+			int sub = bucket % SUB_BUCKETS;
+			return ((long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+		}
+
+		Snapshot snapshot(boolean reset) {
+			long[] counts = new long[buckets.length()];
+			long n = 0;
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = reset ? buckets.getAndSet(i, 0) : buckets.get(i);
+				n += counts[i];
+			}
+			long sum = reset ? total.getAndSet(0) : total.get();
+			long highest = reset ? max.getAndSet(0) : max.get();
+			if (reset)
+				count.set(0);
+
+			return new Snapshot(n, n == 0 ? 0 : sum / n, percentile(counts, n, 0.50, highest),
+				percentile(counts, n, 0.95, highest), percentile(counts, n, 0.99, highest), highest);
+		}
+
+		private static long percentile(long[] counts, long n, double percentile, long highest) {
+			long rank = (long) Math.ceil(percentile * n);
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank && seen > 0)
+					return Math.min(upperBoundOf(i), highest);
+			}
+			return highest;
+		}
+	}
+
+	/**
+	 * Statistics of one timer. All durations are in nanoseconds.
+	 */
+	public static final class Snapshot {
+		private final long count;
+		private final long mean;
+		private final long p50;
+		private final long p95;
+		private final long p99;
+		private final long max;
+
+		Snapshot(long count, long mean, long p50, long p95, long p99, long max) {
+			this.count = count;
+			this.mean = mean;
+			this.p50 = p50;
+			this.p95 = p95;
+			this.p99 = p99;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getMean() {
+			return mean;
+		}
+
+		public long getP50() {
+			return p50;
+		}
+
+		public long getP95() {
+			return p95;
+		}
+
+		public long getP99() {
+			return p99;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("count %d, mean %.3f ms, p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms",
+				count, mean / 1e6, p50 / 1e6, p95 / 1e6, p99 / 1e6, max / 1e6);
+		}
+	}
+}
@@ -2,24 +2,40 @@ package communitycommons;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.math.BigDecimal;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.translate.AggregateTranslator;
@@ -30,6 +46,8 @@ import org.apache.commons.text.translate.LookupTranslator;
 import com.mendix.core.Core;
 import com.mendix.core.CoreException;
 import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.systemwideinterfaces.core.IDataRow;
+import com.mendix.systemwideinterfaces.core.IDataTable;
 import com.mendix.systemwideinterfaces.core.IMendixIdentifier;
 import com.mendix.systemwideinterfaces.core.IMendixObject;
 
@@ -98,8 +116,13 @@ public class XPath<T> {
 	private LinkedHashMap<String, String> sorting = new LinkedHashMap<String, String>();
 	private LinkedList<String> closeStack = new LinkedList<String>();
 	private StringBuilder builder = new StringBuilder();
+	// same constraints as builder, but with $variables instead of inlined values, see appendValue
+	private StringBuilder parameterizedBuilder = new StringBuilder();
+	private LinkedHashMap<String, Object> variables = new LinkedHashMap<String, Object>();
 	private IContext context;
 	private Class<T> proxyClass;
+	// -1: not cached, 0: cached with the time to live of the entity
+	private long cacheTimeToLive = -1;
 	// state property, indicates whether 'and' needs to be inserted before the next
 	// constraint
 	private boolean requiresBinOp = false;
@@ -155,6 +178,23 @@ public class XPath<T> {
 		return this;
 	}
 
+	/**
+	 * Serves first and all results of this query from the {@link XPathCache}, using
+	 * the time to live configured for the entity.
+	 */
+	public XPath<T> cached() {
+		this.cacheTimeToLive = 0;
+		return this;
+	}
+
+	public XPath<T> cached(long timeToLiveMSecs) {
+		if (timeToLiveMSecs < 1)
+			throw new IllegalArgumentException("Time to live should be larger than zero");
+
+		this.cacheTimeToLive = timeToLiveMSecs;
+		return this;
+	}
+
 	public XPath<T> addSortingAsc(Object... sortparts) {
 		assertOdd(sortparts);
 		sorting.put(StringUtils.join(sortparts, '/'), "asc");
@@ -224,28 +264,23 @@ public class XPath<T> {
 	}
 
 	public XPath<T> contains(Object attr, String value) {
-		return functionCall("contains", String.valueOf(attr), valueToXPathValue(value));
+		return functionCall("contains", attr, value);
 	}
 
 	public XPath<T> startsWith(Object attr, String value) {
-		return functionCall("starts-with", String.valueOf(attr), valueToXPathValue(value));
+		return functionCall("starts-with", attr, value);
 	}
 
 	public XPath<T> endsWith(Object attr, String value) {
-		return functionCall("ends-with", String.valueOf(attr), valueToXPathValue(value));
+		return functionCall("ends-with", attr, value);
 	}
 
-	private XPath<T> functionCall(String functionName, String... args) {
+	private XPath<T> functionCall(String functionName, Object attr, Object value) {
 		autoInsertAnd();
 		append(" " + functionName + "(");
-
-		if (args.length > 0) {
-			append(args[0]);
-			for (int i = 1; i < args.length; i++) {
-				append(",");
-				append(args[i]);
-			}
-		}
+		append(String.valueOf(attr));
+		append(",");
+		appendValue(value);
 		append(") ");
 		return requireBinOp(true);
 	}
@@ -263,7 +298,7 @@ public class XPath<T> {
 	public XPath<T> compare(Object[] path, String operator, Object value) {
 		assertOdd(path);
 		autoInsertAnd().append(StringUtils.join(path, '/')).append(" ").append(operator).append(" ")
-			.append(valueToXPathValue(value));
+			.appendValue(value);
 		return requireBinOp(true);
 	}
 
@@ -333,15 +368,105 @@ public class XPath<T> {
 
 	public XPath<T> append(String s) {
 		builder.append(s);
+		parameterizedBuilder.append(s);
+		return this;
+	}
+
+	/**
+	 * Appends a value to compare with. Strings, numbers, enumerations and
+	 * objects are passed to the query as $variables, so that the query text does
+	 * not change with the value and the query plan can be reused. Other values
+	 * (null, booleans, dates and decimals) are inlined, as in {@link #getXPath()}.
+	 */
+	private XPath<T> appendValue(Object value) {
+		String literal = valueToXPathValue(value);
+		builder.append(literal);
+
+		Object variableValue = toXPathVariableValue(value);
+		if (variableValue == null) {
+			parameterizedBuilder.append(literal);
+		} else {
+			String name = "p" + (variables.size() + 1);
+			variables.put(name, variableValue);
+			parameterizedBuilder.append("$").append(name);
+		}
 		return this;
 	}
 
+	/**
+	 * @return the value to bind to an XPath variable, either a String or a Long,
+	 *         or null if the value should be inlined
+	 */
+	private static Object toXPathVariableValue(Object value) {
+		if (value instanceof String)
+			return value;
+		if (value instanceof Long || value instanceof Integer)
+			return ((Number) value).longValue();
+		if (value instanceof IMendixIdentifier)
+			return ((IMendixIdentifier) value).toLong();
+		if (value instanceof IMendixObject)
+			return ((IMendixObject) value).getId().toLong();
+		if (value != null && value.getClass().isEnum())
+			return value.toString();
+		if (value == null || value instanceof List<?> || value instanceof Date || value instanceof Boolean
+			|| value instanceof Number)
+			return null;
+
+		try {
+			return proxyToMendixObject(value).getId().toLong();
+		} catch (Exception e) {
+			// not a proxy object, inline its string representation
+			return null;
+		}
+	}
+
+	/**
+	 * @return the query, with all literal values inlined. Note that this XPath
+	 *         object itself executes the query with variables, see
+	 *         {@link #getParameterizedXPath()}.
+	 */
 	public String getXPath() {
 		if (builder.length() > 0)
 			return "//" + entity + "[" + builder + "]";
 		return "//" + entity;
 	}
 
+	/**
+	 * @return the query with $variables instead of inlined values, see
+	 *         {@link #getVariables()}
+	 */
+	public String getParameterizedXPath() {
+		if (parameterizedBuilder.length() > 0)
+			return "//" + entity + "[" + parameterizedBuilder + "]";
+		return "//" + entity;
+	}
+
+	public Map<String, Object> getVariables() {
+		return Collections.unmodifiableMap(variables);
+	}
+
+	private List<IMendixObject> retrieve(String xpath, Map<String, Object> queryVariables, int amount, int queryOffset) throws CoreException {
+		var query = Core.createXPathQuery(xpath);
+		bindVariables(queryVariables, query::setVariable, query::setVariable);
+		if (amount > -1)
+			query.setAmount(amount);
+		if (queryOffset > 0)
+			query.setOffset(queryOffset);
+		for (Map.Entry<String, String> sort : sorting.entrySet())
+			query.addSort(sort.getKey(), "asc".equals(sort.getValue()));
+		return query.execute(context);
+	}
+
+	private static void bindVariables(Map<String, Object> queryVariables, BiConsumer<String, String> stringBinder,
+		BiConsumer<String, Long> longBinder) {
+		for (Map.Entry<String, Object> variable : queryVariables.entrySet()) {
+			if (variable.getValue() instanceof Long)
+				longBinder.accept(variable.getKey(), (Long) variable.getValue());
+			else
+				stringBinder.accept(variable.getKey(), (String) variable.getValue());
+		}
+	}
+
 	private void assertEmptyStack() throws IllegalStateException {
 		if (!closeStack.isEmpty())
 			throw new IllegalStateException("Invalid xpath expression, not all items where closed");
@@ -350,13 +475,107 @@ public class XPath<T> {
 	public long count() throws CoreException {
 		assertEmptyStack();
 
-		return Core.retrieveXPathQueryAggregate(context, "count(" + getXPath() + ")");
+		var query = Core.createXPathQuery("count(" + getParameterizedXPath() + ")");
+		bindVariables(variables, query::setVariable, query::setVariable);
+		return query.executeAggregateLong(context);
+	}
+
+	/**
+	 * Sum of a numeric attribute over all objects matching this query, computed
+	 * by the database.
+	 *
+	 * @return the sum, or null if no objects match
+	 */
+	public BigDecimal sum(Object attr) throws CoreException {
+		return aggregate("sum", attr);
+	}
+
+	public BigDecimal avg(Object attr) throws CoreException {
+		return aggregate("avg", attr);
+	}
+
+	public BigDecimal min(Object attr) throws CoreException {
+		return aggregate("min", attr);
+	}
+
+	public BigDecimal max(Object attr) throws CoreException {
+		return aggregate("max", attr);
+	}
+
+	private BigDecimal aggregate(String function, Object attr) throws CoreException {
+		assertEmptyStack();
+
+		var query = Core.createXPathQuery(function + "(" + getParameterizedXPath() + "/" + attr + ")");
+		bindVariables(variables, query::setVariable, query::setVariable);
+		return query.executeAggregateBigDecimal(context);
+	}
+
+	/**
+	 * Groups all objects of this entity by the given attribute, for example
+	 * XPath.create(c, Order.class).groupBy(Order.MemberNames.Status).count().
+	 * The grouping is done by the database, using OQL.
+	 *
+	 * OQL cannot be combined with XPath constraints, so this is only available
+	 * on XPath objects without constraints.
+	 */
+	public GroupBy groupBy(Object attr) {
+		if (builder.length() > 0)
+			throw new IllegalStateException("groupBy can only be used on XPath which do not have constraints already");
+
+		return new GroupBy(String.valueOf(attr));
+	}
+
+	public final class GroupBy {
+		private final String attr;
+
+		private GroupBy(String attr) {
+			this.attr = attr;
+		}
+
+		/**
+		 * @return the number of objects per value of the attribute, ordered by value
+		 */
+		public Map<Object, Long> count() throws CoreException {
+			Map<Object, Long> res = new LinkedHashMap<Object, Long>();
+			for (Map.Entry<Object, BigDecimal> entry : aggregate("COUNT(*)").entrySet())
+				res.put(entry.getKey(), entry.getValue() == null ? 0L : entry.getValue().longValue());
+			return res;
+		}
+
+		public Map<Object, BigDecimal> sum(Object valueAttr) throws CoreException {
+			return aggregate("SUM(o." + valueAttr + ")");
+		}
+
+		public Map<Object, BigDecimal> avg(Object valueAttr) throws CoreException {
+			return aggregate("AVG(o." + valueAttr + ")");
+		}
+
+		public Map<Object, BigDecimal> min(Object valueAttr) throws CoreException {
+			return aggregate("MIN(o." + valueAttr + ")");
+		}
+
+		public Map<Object, BigDecimal> max(Object valueAttr) throws CoreException {
+			return aggregate("MAX(o." + valueAttr + ")");
+		}
+
+		private Map<Object, BigDecimal> aggregate(String aggregateExpression) throws CoreException {
+			String oql = String.format("SELECT o.%1$s AS GroupKey, %2$s AS GroupValue FROM %3$s AS o GROUP BY o.%1$s ORDER BY o.%1$s",
+				attr, aggregateExpression, entity);
+
+			Map<Object, BigDecimal> res = new LinkedHashMap<Object, BigDecimal>();
+			IDataTable table = Core.retrieveOQLDataTable(context, oql);
+			for (IDataRow row : table.getRows()) {
+				Object value = row.getValue(context, 1);
+				res.put(row.getValue(context, 0), value == null ? null : new BigDecimal(value.toString()));
+			}
+			return res;
+		}
 	}
 
 	public IMendixObject firstMendixObject() throws CoreException {
 		assertEmptyStack();
 
-		List<IMendixObject> result = Core.retrieveXPathQuery(context, getXPath(), 1, offset, sorting);
+		List<IMendixObject> result = retrieveCached(1);
 		if (result.isEmpty())
 			return null;
 		return result.get(0);
@@ -387,18 +606,43 @@ public class XPath<T> {
 
 	}
 
+	// find or create calls for the same keys share a lock, calls for other keys most likely do not
+	private static final Object[] FIND_OR_CREATE_LOCKS = new Object[256];
+
+	static {
+		for (int i = 0; i < FIND_OR_CREATE_LOCKS.length; i++)
+			FIND_OR_CREATE_LOCKS[i] = new Object();
+	}
+
+	private static Object findOrCreateLock(String entity, Object... keysAndValues) {
+		int hash = entity.hashCode();
+		for (Object keyOrValue : keysAndValues)
+			hash = 31 * hash + Objects.hashCode(toKeyValue(toMemberValue(keyOrValue)));
+		// spread the high bits, like HashMap does
+		hash ^= (hash >>> 16);
+		return FIND_OR_CREATE_LOCKS[hash & (FIND_OR_CREATE_LOCKS.length - 1)];
+	}
+
 	public T findOrCreateSynchronized(Object... keysAndValues) throws CoreException, InterruptedException {
 		T res = findFirst(keysAndValues);
 
 		if (res != null) {
 			return res;
 		} else {
-			synchronized (Core.getMetaObject(entity)) {
+			synchronized (findOrCreateLock(entity, keysAndValues)) {
 				IContext synchronizedContext = context.getSession().createContext().createSudoClone();
+
+				// another thread might have created the object while we were waiting for the lock. It committed
+				// in its own transaction, so it is visible without starting a new one. Look it up in the same sudo
+				// context the object is created in, so an object the caller cannot read is not created twice
+				IMendixObject existing = XPath.create(synchronizedContext, entity).findFirst(keysAndValues);
+				if (existing != null)
+					return createProxy(context, proxyClass, existing);
+
 				try {
 					synchronizedContext.startTransaction();
 					res = createProxy(synchronizedContext, proxyClass,
-						XPath.create(synchronizedContext, entity).findOrCreate(keysAndValues));
+						XPath.create(synchronizedContext, entity).constructInstance(true, keysAndValues));
 					synchronizedContext.endTransaction();
 					return res;
 				} catch (CoreException e) {
@@ -423,6 +667,97 @@ public class XPath<T> {
 		return first();
 	}
 
+	private static final int FIND_OR_CREATE_CHUNKSIZE = 100;
+
+	/**
+	 * Bulk version of {@link #findOrCreate(Object...)}. Finds the objects for
+	 * all given key tuples with one query per {@value #FIND_OR_CREATE_CHUNKSIZE}
+	 * tuples, creates the missing objects in memory and commits them all at
+	 * once.
+	 *
+	 * Like XPath comparisons, string keys are matched case insensitively. Unlike
+	 * {@link #findOrCreateSynchronized(Object...)}, concurrent calls for the same
+	 * keys are not synchronized.
+	 *
+	 * @param keyValues     Tuples of key values, in the order of keyAttributes
+	 * @param keyAttributes Names of the key attributes
+	 * @return the object for each tuple, in the order of keyValues
+	 * @throws CoreException
+	 */
+	public Map<List<?>, T> findOrCreateAll(Collection<? extends List<?>> keyValues, Object... keyAttributes)
+		throws CoreException {
+		if (builder.length() > 0)
+			throw new IllegalStateException("FindOrCreateAll can only be used on XPath which do not have constraints already");
+		if (keyAttributes.length == 0)
+			throw new IllegalArgumentException("At least one key attribute is required");
+
+		Map<List<Object>, IMendixObject> found = new HashMap<List<Object>, IMendixObject>();
+		List<List<?>> tuples = new ArrayList<List<?>>(keyValues);
+		for (int start = 0; start < tuples.size(); start += FIND_OR_CREATE_CHUNKSIZE) {
+			XPath<IMendixObject> query = XPath.create(context, entity);
+			for (List<?> tuple : tuples.subList(start, Math.min(start + FIND_OR_CREATE_CHUNKSIZE, tuples.size()))) {
+				if (tuple.size() != keyAttributes.length)
+					throw new IllegalArgumentException("Expected " + keyAttributes.length + " key values, got " + tuple);
+				if (query.requiresBinOp)
+					query.or();
+				query.subconstraint();
+				for (int i = 0; i < keyAttributes.length; i++)
+					query.eq(keyAttributes[i], tuple.get(i));
+				query.close();
+			}
+
+			for (IMendixObject existing : query.allMendixObjects()) {
+				List<Object> key = new ArrayList<Object>(keyAttributes.length);
+				for (Object attr : keyAttributes)
+					key.add(toKeyValue(existing.getValue(context, String.valueOf(attr))));
+				found.putIfAbsent(key, existing);
+			}
+		}
+
+		Map<List<?>, T> res = new LinkedHashMap<List<?>, T>();
+		List<IMendixObject> created = new ArrayList<IMendixObject>();
+		for (List<?> tuple : tuples) {
+			List<Object> key = new ArrayList<Object>(keyAttributes.length);
+			for (Object value : tuple)
+				key.add(toKeyValue(toMemberValue(value)));
+
+			IMendixObject obj = found.get(key);
+			if (obj == null) {
+				obj = Core.instantiate(context, entity);
+				for (int i = 0; i < keyAttributes.length; i++)
+					obj.setValue(context, String.valueOf(keyAttributes[i]), toMemberValue(tuple.get(i)));
+				created.add(obj);
+				found.put(key, obj);
+			}
+			res.put(tuple, createProxy(context, proxyClass, obj));
+		}
+
+		if (!created.isEmpty())
+			Core.commit(context, created);
+
+		return res;
+	}
+
+	/**
+	 * Normalizes a member value so that values that XPath considers equal are
+	 * equal keys as well.
+	 */
+	private static Object toKeyValue(Object value) {
+		if (value instanceof String)
+			return ((String) value).toLowerCase(Locale.ROOT);
+		if (value instanceof Integer || value instanceof Long)
+			return ((Number) value).longValue();
+		if (value instanceof IMendixIdentifier)
+			return ((IMendixIdentifier) value).toLong();
+		if (value instanceof BigDecimal)
+			return ((BigDecimal) value).stripTrailingZeros();
+		if (value instanceof Double || value instanceof Float)
+			return new BigDecimal(value.toString()).stripTrailingZeros();
+		if (value instanceof Date)
+			return ((Date) value).getTime();
+		return value;
+	}
+
 	/**
 	 * Creates one instance of the type of this XPath query, and initializes the
 	 * provided attributes to the provided values.
@@ -445,6 +780,8 @@ public class XPath<T> {
 		return createProxy(context, proxyClass, newObj);
 	}
 
+	private static final int SYNC_CHUNKSIZE = 1000;
+
 	/**
 	 * Given a current collection of primitive values, checks if for each value in
 	 * the collection an object in the database exists.
@@ -480,59 +817,76 @@ public class XPath<T> {
 		for (int i = 0; i < keysAndValues.length; i += 2)
 			eq(keysAndValues[i], keysAndValues[i + 1]);
 
-		for (IMendixObject existingItem : allMendixObjects()) {
-			// Item is still available
-			if (col.remove(existingItem.getValue(context, String.valueOf(comparisonAttribute))))
-				continue;
-
-			// No longer available
-			removed.add(createProxy(context, proxyClass, existingItem));
-			if (autoDelete)
-				Core.delete(context, existingItem);
+		// existing objects are streamed page by page, deletes are applied afterwards so they don't shift the pages
+		List<IMendixObject> toDelete = new ArrayList<IMendixObject>();
+		try (Stream<IMendixObject> existingItems = streamMendixObjects(SYNC_CHUNKSIZE, false)) {
+			Iterator<IMendixObject> it = existingItems.iterator();
+			while (it.hasNext()) {
+				IMendixObject existingItem = it.next();
+				// Item is still available
+				if (col.remove(existingItem.getValue(context, String.valueOf(comparisonAttribute))))
+					continue;
+
+				// No longer available
+				removed.add(createProxy(context, proxyClass, existingItem));
+				toDelete.add(existingItem);
+			}
 		}
 
+		if (autoDelete)
+			for (int start = 0; start < toDelete.size(); start += SYNC_CHUNKSIZE)
+				Core.delete(context, toDelete.subList(start, Math.min(start + SYNC_CHUNKSIZE, toDelete.size())));
+
 		// Some items where not found in the database
+		List<IMendixObject> toCommit = new ArrayList<IMendixObject>();
 		for (U value : col) {
-
-			// In apache lang3, this would just be: ArrayUtils.addAll(keysAndValues,
-			// comparisonAttribute, value)
-			Object[] args = new Object[keysAndValues.length + 2];
-			for (int i = 0; i < keysAndValues.length; i++)
-				args[i] = keysAndValues[i];
-			args[keysAndValues.length] = comparisonAttribute;
-			args[keysAndValues.length + 1] = value;
-
-			T newItem = constructInstance(true, args);
-			added.add(newItem);
+			IMendixObject newObj = Core.instantiate(context, entity);
+			for (int i = 0; i < keysAndValues.length; i += 2)
+				newObj.setValue(context, String.valueOf(keysAndValues[i]), toMemberValue(keysAndValues[i + 1]));
+			newObj.setValue(context, String.valueOf(comparisonAttribute), toMemberValue(value));
+
+			toCommit.add(newObj);
+			added.add(createProxy(context, proxyClass, newObj));
+			if (toCommit.size() == SYNC_CHUNKSIZE) {
+				Core.commit(context, toCommit);
+				toCommit = new ArrayList<IMendixObject>();
+			}
 		}
+		if (!toCommit.isEmpty())
+			Core.commit(context, toCommit);
 
 		// Oké, stupid, Pair is also only available in apache lang3, so lets use a
 		// simple pair implementation for now
 		return ImmutablePair.of(added, removed);
 	}
 
-	public T firstOrWait(long timeoutMSecs) throws CoreException, InterruptedException {
-		IMendixObject result = null;
+	// safety net for changes that are not seen by the commit listeners, for example commits on other cluster nodes
+	private static final long FIRST_OR_WAIT_POLL_INTERVAL = 5000;
+	// commit listeners fire before the transaction ends, so recheck shortly after a change that was not visible yet
+	private static final long FIRST_OR_WAIT_RECHECK_INTERVAL = 200;
 
-		long start = System.currentTimeMillis();
-		int sleepamount = 200;
-		int loopcount = 0;
+	/**
+	 * Returns the first result of this query, waiting until one is available or
+	 * the timeout expires. The query is rerun when an object of the entity is
+	 * committed or deleted on this runtime instance, and every
+	 * {@value #FIRST_OR_WAIT_POLL_INTERVAL} ms otherwise.
+	 */
+	public T firstOrWait(long timeoutMSecs) throws CoreException, InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMSecs;
+		long generation = EntityChanges.getGeneration(entity);
+		IMendixObject result = firstMendixObject();
+		boolean recheck = false;
 
 		while (result == null) {
-			loopcount += 1;
-			result = firstMendixObject();
-
-			long now = System.currentTimeMillis();
-
-			if (start + timeoutMSecs < now) // Time expired
+			long remaining = deadline - System.currentTimeMillis();
+			if (remaining <= 0) // Time expired
 				break;
 
-			if (loopcount % 5 == 0)
-				sleepamount = (int)(sleepamount * 1.5);
-
-			// not expired, wait a bit
-			if (result == null)
-				Thread.sleep(sleepamount);
+			boolean changed = EntityChanges.awaitChange(entity, generation,
+				Math.min(remaining, recheck ? FIRST_OR_WAIT_RECHECK_INTERVAL : FIRST_OR_WAIT_POLL_INTERVAL));
+			generation = EntityChanges.getGeneration(entity);
+			result = firstMendixObject();
+			recheck = changed;
 		}
 
 		return createProxy(context, proxyClass, result);
@@ -541,7 +895,15 @@ public class XPath<T> {
 	public List<IMendixObject> allMendixObjects() throws CoreException {
 		assertEmptyStack();
 
-		return Core.retrieveXPathQuery(context, getXPath(), limit, offset, sorting);
+		return retrieveCached(limit);
+	}
+
+	private List<IMendixObject> retrieveCached(int amount) throws CoreException {
+		if (cacheTimeToLive < 0)
+			return retrieve(getParameterizedXPath(), variables, amount, offset);
+
+		return XPathCache.retrieve(context, entity, getParameterizedXPath(), variables, amount, offset, sorting,
+			cacheTimeToLive, () -> retrieve(getParameterizedXPath(), variables, amount, offset));
 	}
 
 	public List<T> all() throws CoreException {
@@ -552,6 +914,133 @@ public class XPath<T> {
 		return res;
 	}
 
+	private static final int DEFAULT_STREAM_PAGESIZE = 1000;
+
+	/**
+	 * Lazily streams the results of this query, see {@link #stream(int, boolean)}.
+	 * Uses pages of {@value #DEFAULT_STREAM_PAGESIZE} objects without prefetching.
+	 */
+	public Stream<T> stream() {
+		return stream(DEFAULT_STREAM_PAGESIZE, false);
+	}
+
+	/**
+	 * Lazily streams the results of this query. Only one page of objects (two
+	 * when prefetching) is kept in memory, so this can be used to iterate over
+	 * tables that are too large for {@link #all()}.
+	 *
+	 * Unless a custom sort order or offset is set, pages are retrieved by id
+	 * ([id > last id of the previous page]), so retrieving a page does not get
+	 * slower the further the stream gets. The limit of this XPath is respected.
+	 *
+	 * When prefetching, the next page is retrieved in the background while the
+	 * current page is consumed. The context of this XPath is then used from
+	 * another thread, so do not use that context in the stream pipeline itself.
+	 * Close the stream (for example with try-with-resources) if it is not
+	 * consumed completely, to wait for an outstanding prefetch.
+	 *
+	 * Retrieve failures are thrown as RuntimeException while consuming the
+	 * stream.
+	 *
+	 * @param pagesize number of objects retrieved per page
+	 * @param prefetch whether to retrieve the next page in the background
+	 */
+	public Stream<T> stream(int pagesize, boolean prefetch) {
+		return streamMendixObjects(pagesize, prefetch)
+			.map(o -> createProxy(context, proxyClass, o));
+	}
+
+	public Stream<IMendixObject> streamMendixObjects(int pagesize, boolean prefetch) {
+		if (pagesize < 1)
+			throw new IllegalArgumentException("Page size should be larger than zero");
+		assertEmptyStack();
+
+		final boolean pageById = offset == 0 && isSortedById();
+		if (sorting.isEmpty())
+			addSortingAsc(XPath.ID);
+
+		final PageIterator iterator = new PageIterator(pageById, pagesize, prefetch);
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+			.onClose(iterator::close);
+	}
+
+	private final class PageIterator implements Iterator<IMendixObject> {
+		private final boolean pageById;
+		private final int pagesize;
+		private final boolean prefetch;
+		private List<IMendixObject> page = Collections.emptyList();
+		private int index = 0;
+		private long retrieved = 0;
+		private boolean exhausted = false;
+		private Future<List<IMendixObject>> nextPage;
+
+		PageIterator(boolean pageById, int pagesize, boolean prefetch) {
+			this.pageById = pageById;
+			this.pagesize = pagesize;
+			this.prefetch = prefetch;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (index >= page.size() && !exhausted)
+				nextPage();
+			return index < page.size();
+		}
+
+		@Override
+		public IMendixObject next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return page.get(index++);
+		}
+
+		private void nextPage() {
+			final IMendixObject last = page.isEmpty() ? null : page.get(page.size() - 1);
+			try {
+				if (nextPage != null) {
+					page = nextPage.get();
+					nextPage = null;
+				} else {
+					final int amount = pageAmount(pagesize, retrieved);
+					page = amount > 0
+						? retrievePage(pageById, last, (int) (offset + retrieved), amount)
+						: Collections.<IMendixObject>emptyList();
+				}
+			} catch (CoreException e) {
+				throw new RuntimeException(String.format("Failed to retrieve page of '%s' at %d: %s", XPath.this, retrieved,
+					e.getMessage()), e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(String.format("Failed to retrieve page of '%s' at %d: %s", XPath.this, retrieved,
+					e.getCause().getMessage()), e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while retrieving page of '" + XPath.this + "'", e);
+			}
+
+			index = 0;
+			retrieved += page.size();
+			// a page that is not full is the last one
+			exhausted = page.size() < pagesize;
+
+			if (prefetch && !exhausted)
+				nextPage = submitPageRetrieve(BATCH_EXECUTOR, pageById, page.get(page.size() - 1), retrieved, pagesize);
+		}
+
+		void close() {
+			exhausted = true;
+			if (nextPage != null && !nextPage.isDone()) {
+				try {
+					nextPage.get();
+				} catch (ExecutionException e) {
+					// the page is not needed anymore
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			nextPage = null;
+		}
+	}
+
 	@Override
 	public String toString() {
 		return getXPath();
@@ -559,10 +1048,6 @@ public class XPath<T> {
 
 	/* Static utility functions */
 
-	// Cache for proxy constructors. Reflection is slow, so reuse as much as
-	// possible
-	private static Map<String, Method> initializers = new HashMap<String, Method>();
-
 	public static <T> List<T> createProxyList(IContext c, Class<T> proxieClass, List<IMendixObject> objects) {
 		List<T> res = new ArrayList<T>();
 		if (objects == null || objects.size() == 0)
@@ -588,21 +1073,8 @@ public class XPath<T> {
 			return proxieClass.cast(object); // .. since we can do a direct cast
 
 		try {
-			String entityType = object.getType();
-
-			if (!initializers.containsKey(entityType)) {
-
-				String[] entType = object.getType().split("\\.");
-				Class<?> realClass = Class.forName(entType[0].toLowerCase() + ".proxies." + entType[1]);
-
-				initializers.put(entityType, realClass.getMethod("initialize", IContext.class, IMendixObject.class));
-			}
-
-			// find constructor
-			Method m = initializers.get(entityType);
-
-			// create proxy object
-			Object result = m.invoke(null, c, object);
+			// create proxy object, the factory per entity type is cached, as looking it up is slow
+			Object result = ProxyFactories.getFactory(object.getType()).apply(c, object);
 
 			// cast, but check first is needed because the actual type might be a subclass
 			// of the requested type
@@ -803,6 +1275,19 @@ public class XPath<T> {
 		} while (data.size() > 0);
 	}
 
+	// Shared by all parallel batches, so a batch no longer needs to start (and tear down) a thread pool of its own.
+	// The number of items a single batch runs at the same time is limited by the batch itself.
+	private static final ExecutorService BATCH_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+		private final AtomicInteger threadCount = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "CommunityCommons-XPathBatch-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
 	/**
 	 * Batch with parallelization.
 	 *
@@ -811,6 +1296,9 @@ public class XPath<T> {
 	 *
 	 * Instead, use: Item.getContext(); !!
 	 *
+	 * Runs on a thread pool shared by all batches, with at most 'threads' items
+	 * being processed at the same time. See
+	 * {@link #batch(int, int, ExecutorService, IBatchProcessor)}.
 	 *
 	 * @param batchsize
 	 * @param threads
@@ -821,47 +1309,141 @@ public class XPath<T> {
 	 */
 	public void batch(int batchsize, int threads, final IBatchProcessor<T> batchProcessor)
 		throws CoreException, InterruptedException, ExecutionException {
+		batch(batchsize, threads, BATCH_EXECUTOR, batchProcessor);
+	}
+
+	/**
+	 * Batch with parallelization on the provided executor, for example a virtual
+	 * thread per task executor. The executor is not shut down afterwards.
+	 *
+	 * Unless a custom sort order or offset is set, pages are retrieved by id
+	 * ([id > last id of the previous page]) instead of by offset, so retrieving
+	 * a page does not get slower the further the batch gets. The next page is
+	 * retrieved while the items of the current page are processed, and at most
+	 * maxInFlight items are submitted to the executor at the same time.
+	 *
+	 * After the first failing item no new items are started; the batch waits for
+	 * the items in flight and throws an ExecutionException with the failure.
+	 *
+	 * IMPORTANT NOTE: DO NOT USE THE CONTEXT OF THE XPATH OBJECT ITSELF INSIDE THE
+	 * BATCH PROCESSOR!
+	 *
+	 * @param batchsize      number of objects retrieved per page
+	 * @param maxInFlight    maximum number of items being processed at the same time
+	 * @param executor       executor that runs the page retrieves and the items
+	 * @param batchProcessor
+	 * @throws CoreException
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	public void batch(int batchsize, int maxInFlight, ExecutorService executor, final IBatchProcessor<T> batchProcessor)
+		throws CoreException, InterruptedException, ExecutionException {
+		if (batchsize < 1 || maxInFlight < 1)
+			throw new IllegalArgumentException("Batch size and number of items in flight should be larger than zero");
+		assertEmptyStack();
+
+		final boolean pageById = offset == 0 && isSortedById();
 		if (sorting.isEmpty())
 			addSortingAsc(XPath.ID);
 
-		ExecutorService pool = Executors.newFixedThreadPool(threads);
-
 		final long itemcount = count();
+		final Semaphore inFlight = new Semaphore(maxInFlight);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
 
-		int progress = 0;
-		List<Future<?>> futures = new ArrayList<Future<?>>(batchsize); // no need to synchronize
+		long progress = 0;
+		Future<List<IMendixObject>> nextPage = submitPageRetrieve(executor, pageById, null, 0, batchsize);
+		try {
+			while (failure.get() == null) {
+				List<IMendixObject> data = nextPage.get();
+				if (data.isEmpty())
+					break;
+
+				// prefetch the next page while the workers process this one
+				nextPage = submitPageRetrieve(executor, pageById, data.get(data.size() - 1), progress + data.size(), batchsize);
+
+				for (final IMendixObject item : data) {
+					inFlight.acquire();
+					if (failure.get() != null) {
+						inFlight.release();
+						break;
+					}
 
-		offset(0);
-		limit(batchsize);
+					final ParallelJobRunner<T> job = new ParallelJobRunner<T>(this, batchProcessor, item, progress, itemcount);
+					try {
+						executor.execute(() -> {
+							try {
+								job.call();
+							} catch (Throwable e) {
+								failure.compareAndSet(null, e);
+							} finally {
+								inFlight.release();
+							}
+						});
+					} catch (RejectedExecutionException e) {
+						inFlight.release();
+						throw e;
+					}
+					progress += 1;
+				}
+			}
+		} finally {
+			// wait for the items in flight and an outstanding prefetch, those still use this XPath
+			inFlight.acquireUninterruptibly(maxInFlight);
+			if (!nextPage.isDone()) {
+				try {
+					nextPage.get();
+				} catch (ExecutionException e) {
+					// the batch is already finished or failed, the next page is not needed anymore
+				}
+			}
+		}
 
-		List<IMendixObject> data = allMendixObjects();
+		if (failure.get() != null)
+			throw new ExecutionException(failure.get());
+	}
 
-		while (data.size() > 0) {
-			for (final IMendixObject item : data) {
-				futures.add(pool.submit(new ParallelJobRunner<T>(this, batchProcessor, item, progress, itemcount)));
-				progress += 1;
-			}
+	private boolean isSortedById() {
+		return sorting.isEmpty() || (sorting.size() == 1 && "asc".equals(sorting.get(XPath.ID)));
+	}
 
-			while (!futures.isEmpty())
-				futures.remove(0).get(); // wait for all futures before proceeding to next iteration
+	private Future<List<IMendixObject>> submitPageRetrieve(ExecutorService executor, final boolean pageById,
+		final IMendixObject last, final long retrieved, int batchsize) {
+		final int amount = pageAmount(batchsize, retrieved);
+		if (amount <= 0)
+			return CompletableFuture.completedFuture(new ArrayList<IMendixObject>());
 
-			offset(offset + data.size());
-			data = allMendixObjects();
-		}
+		return executor.submit(() -> retrievePage(pageById, last, (int) (offset + retrieved), amount));
+	}
 
-		if (pool.shutdownNow().size() > 0)
-			throw new IllegalStateException("Not all tasks where finished!");
+	private int pageAmount(int pagesize, long retrieved) {
+		return limit > -1 ? (int) Math.min(pagesize, limit - retrieved) : pagesize;
+	}
+
+	private List<IMendixObject> retrievePage(boolean pageById, IMendixObject last, int pageOffset, int amount) throws CoreException {
+		if (!pageById || last == null)
+			return retrieve(getParameterizedXPath(), variables, amount, pageOffset);
+
+		Map<String, Object> pageVariables = new LinkedHashMap<String, Object>(variables);
+		pageVariables.put("lastId", last.getId().toLong());
+		return retrieve(getParameterizedXPath() + "[" + XPath.ID + " > $lastId]", pageVariables, amount, 0);
 	}
 
 	public static Class<?> getProxyClassForEntityName(String entityname) {
-		{
-			String[] parts = entityname.split("\\.");
-			try {
-				return Class.forName(parts[0].toLowerCase() + ".proxies." + parts[1]);
-			} catch (ClassNotFoundException e) {
-				throw new RuntimeException("Cannot find class for entity: " + entityname + ": " + e.getMessage(), e);
-			}
-		}
+		return ProxyFactories.getProxyClass(entityname);
+	}
+
+	/**
+	 * Deletes all objects of this query on 'parallelism' threads, in system
+	 * contexts, see {@link PartitionedMutation}. Unlike {@link #deleteAll()}, the
+	 * deletes are not part of the transaction of the context of this XPath.
+	 *
+	 * @param dryRun Only count the objects that would be deleted
+	 * @return the number of objects that were deleted (or would be deleted)
+	 */
+	public long deleteAll(int parallelism, boolean dryRun) throws InterruptedException, ExecutionException {
+		assertEmptyStack();
+		return PartitionedMutation.start("delete " + entity, getXPath(),
+			dryRun ? PartitionedMutation.Operation.COUNT : PartitionedMutation.Operation.DELETE, parallelism, 1000).await();
 	}
 
 	public boolean deleteAll() throws CoreException {
@@ -0,0 +1,218 @@
+package communitycommons;
+
+import com.mendix.core.CoreException;
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.systemwideinterfaces.core.IMendixObject;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Result cache for {@link XPath} queries that opted in with {@link XPath#cached()}. Meant for reference data that is
+ * read far more often than it changes.
+ *
+ * Results are cached per query, offset, limit, sorting and user, in a least recently used map with a maximum size, and
+ * served from memory without a database round trip. Callers of the same user (or all sudo callers) share the result
+ * objects, so callers only see objects their access rules allow.
+ * Cached results are not used anymore once an object of their entity (or of one of its specializations) is committed
+ * or deleted, see {@link EntityChanges}. Results also expire after the time to live of their entity.
+ *
+ * Note that:
+ * - The cached objects are shared and should not be changed. A result with an object that has uncommitted changes is
+ * not served anymore but retrieved again, and committing a cached object invalidates the results of its entity.
+ * - Queries in a context with a running transaction bypass the cache, their results can depend on changes that are
+ * not committed yet.
+ * - Only changes to the queried entity itself invalidate results. Results that depend on constraints over
+ * associations can be stale until they expire.
+ * - Commit events are raised when the object is committed, not when the transaction ends, so a result that is read
+ * in between can be stale until it expires.
+ */
+public class XPathCache {
+
+	public static final int DEFAULT_MAX_SIZE = 1000;
+	public static final long DEFAULT_TIME_TO_LIVE = 60000;
+
+	private static final Map<String, Long> timesToLive = new ConcurrentHashMap<>();
+	private static final AtomicLong hits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+
+	private static volatile int maxSize = DEFAULT_MAX_SIZE;
+	private static volatile long defaultTimeToLive = DEFAULT_TIME_TO_LIVE;
+
+	// access ordered, so the eldest entry is the least recently used one
+	private static final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+			return size() > maxSize;
+		}
+	};
+
+	private XPathCache() {
+	}
+
+	/**
+	 * @param size            Maximum number of cached results
+	 * @param timeToLiveMSecs Time to live of results of entities without their own time to live
+	 */
+	public static void configure(int size, long timeToLiveMSecs) {
+		if (size < 1 || timeToLiveMSecs < 1)
+			throw new IllegalArgumentException("Cache size and time to live should be larger than zero");
+
+		maxSize = size;
+		defaultTimeToLive = timeToLiveMSecs;
+		synchronized (entries) {
+			while (entries.size() > maxSize)
+				entries.remove(entries.keySet().iterator().next());
+		}
+	}
+
+	public static void setTimeToLive(String entity, long timeToLiveMSecs) {
+		if (timeToLiveMSecs < 1)
+			throw new IllegalArgumentException("Time to live should be larger than zero");
+		timesToLive.put(entity, timeToLiveMSecs);
+	}
+
+	public static long getTimeToLive(String entity) {
+		return timesToLive.getOrDefault(entity, defaultTimeToLive);
+	}
+
+	/**
+	 * Marks all cached results of the given entity as stale.
+	 */
+	public static void invalidate(String entity) {
+		EntityChanges.changed(entity);
+	}
+
+	public static void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public interface IRetriever {
+
+		List<IMendixObject> retrieve() throws CoreException;
+
+	}
+
+	static List<IMendixObject> retrieve(IContext context, String entity, String xpath, Map<String, Object> variables,
+		int amount, int offset, Map<String, String> sorting, long timeToLiveMSecs, IRetriever retriever)
+		throws CoreException {
+		if (context.isInTransaction())
+			return retriever.retrieve();
+
+		final Key key = new Key(entity, xpath, new LinkedHashMap<String, Object>(variables), amount, offset,
+			new LinkedHashMap<String, String>(sorting), getScope(context));
+		final long now = System.currentTimeMillis();
+		// read before retrieving, so that a commit during the retrieve makes the result stale
+		final long generation = EntityChanges.getGeneration(entity);
+
+		final Entry cached;
+		synchronized (entries) {
+			cached = entries.get(key);
+		}
+		if (cached != null && cached.generation == generation && cached.expires > now && !isChanged(cached.objects)) {
+			hits.incrementAndGet();
+			return new ArrayList<IMendixObject>(cached.objects);
+		}
+
+		misses.incrementAndGet();
+		final List<IMendixObject> objects = retriever.retrieve();
+		final long timeToLive = timeToLiveMSecs > 0 ? timeToLiveMSecs : getTimeToLive(entity);
+		synchronized (entries) {
+			entries.put(key, new Entry(new ArrayList<IMendixObject>(objects), generation, now + timeToLive));
+		}
+		return objects;
+	}
+
+	/**
+	 * A caller changed a shared object without committing it, so the result no longer shows the stored values.
+	 */
+	private static boolean isChanged(List<IMendixObject> objects) {
+		for (IMendixObject object : objects)
+			if (object.isChanged())
+				return true;
+		return false;
+	}
+
+	/**
+	 * Results are only shared between contexts that see the same objects: sudo contexts, or contexts of the same user.
+	 */
+	private static String getScope(IContext context) {
+		if (context.isSudo() || context.getSession() == null)
+			return "";
+		return context.getSession().getUserName();
+	}
+
+	public static long getHitCount() {
+		return hits.get();
+	}
+
+	public static long getMissCount() {
+		return misses.get();
+	}
+
+	public static int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	private static final class Key {
+		private final String entity;
+		private final String xpath;
+		private final Map<String, Object> variables;
+		private final int amount;
+		private final int offset;
+		private final Map<String, String> sorting;
+		private final String scope;
+
+		Key(String entity, String xpath, Map<String, Object> variables, int amount, int offset,
+			Map<String, String> sorting, String scope) {
+			this.entity = entity;
+			this.xpath = xpath;
+			this.variables = variables;
+			this.amount = amount;
+			this.offset = offset;
+			this.sorting = sorting;
+			this.scope = scope;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key other = (Key) o;
+			return amount == other.amount && offset == other.offset && entity.equals(other.entity)
+				&& xpath.equals(other.xpath) && variables.equals(other.variables) && scope.equals(other.scope)
+				// sort order is relevant, so compare as lists
+				&& new ArrayList<>(sorting.entrySet()).equals(new ArrayList<>(other.sorting.entrySet()));
+		}
+
+		@Override
+		public int hashCode() {
+			int result = xpath.hashCode();
+			result = 31 * result + variables.hashCode();
+			result = 31 * result + amount;
+			result = 31 * result + offset;
+			result = 31 * result + sorting.hashCode();
+			result = 31 * result + scope.hashCode();
+			return result;
+		}
+	}
+
+	private static final class Entry {
+		private final List<IMendixObject> objects;
+		private final long generation;
+		private final long expires;
+
+		Entry(List<IMendixObject> objects, long generation, long expires) {
+			this.objects = objects;
+			this.generation = generation;
+			this.expires = expires;
+		}
+	}
+}
@@ -0,0 +1,67 @@
+// This file was generated by Mendix Studio Pro.
+//
+// WARNING: Only the following code will be retained when actions are regenerated:
+// - the import list
+// - the code between BEGIN USER CODE and END USER CODE
+// - the code between BEGIN EXTRA CODE and END EXTRA CODE
+// Other code you write will be lost the next time you deploy the project.
+// Special characters, e.g., é, ö, à, etc. are supported in comments.
+
+package communitycommons.actions;
+
+import com.mendix.systemwideinterfaces.core.IMendixObject;
+import communitycommons.StringUtils;
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.webui.CustomJavaAction;
+
+/**
+ * Stores the base 64 encoded contents of the source file plain in the target file. The file is decoded while it is copied, so it is never loaded in memory completely.
+ * 
+ * Note that targetFile will be committed.
+ */
+public class Base64DecodeFileToFile extends CustomJavaAction<java.lang.Boolean>
+{
+	/** @deprecated use sourceFile.getMendixObject() instead. */
+	@java.lang.Deprecated(forRemoval = true)
+	private final IMendixObject __sourceFile;
+	private final system.proxies.FileDocument sourceFile;
+	/** @deprecated use targetFile.getMendixObject() instead. */
+	@java.lang.Deprecated(forRemoval = true)
+	private final IMendixObject __targetFile;
+	private final system.proxies.FileDocument targetFile;
+
+	public Base64DecodeFileToFile(
+		IContext context,
+		IMendixObject _sourceFile,
+		IMendixObject _targetFile
+	)
+	{
+		super(context);
+		this.__sourceFile = _sourceFile;
+		this.sourceFile = _sourceFile == null ? null : system.proxies.FileDocument.initialize(getContext(), _sourceFile);
+		this.__targetFile = _targetFile;
+		this.targetFile = _targetFile == null ? null : system.proxies.FileDocument.initialize(getContext(), _targetFile);
+	}
+
+	@java.lang.Override
+	public java.lang.Boolean executeAction() throws Exception
+	{
+		// BEGIN USER CODE
+		StringUtils.base64DecodeFileToFile(getContext(), sourceFile, targetFile);
+		return true;
+		// END USER CODE
+	}
+
+	/**
+	 * Returns a string representation of this action
+	 * @return a string representation of this action
+	 */
+	@java.lang.Override
+	public java.lang.String toString()
+	{
+		return "Base64DecodeFileToFile";
+	}
+
+	// BEGIN EXTRA CODE
+	// END EXTRA CODE
+}
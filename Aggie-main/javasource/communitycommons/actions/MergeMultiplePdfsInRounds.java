@@ -0,0 +1,76 @@
+// This file was generated by Mendix Studio Pro.
+//
+// WARNING: Only the following code will be retained when actions are regenerated:
+// - the import list
+// - the code between BEGIN USER CODE and END USER CODE
+// - the code between BEGIN EXTRA CODE and END EXTRA CODE
+// Other code you write will be lost the next time you deploy the project.
+// Special characters, e.g., é, ö, à, etc. are supported in comments.
+
+package communitycommons.actions;
+
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.systemwideinterfaces.core.IMendixObject;
+import com.mendix.webui.CustomJavaAction;
+import communitycommons.Misc;
+
+/**
+ * Merges any number of PDF files into MergedDocument, without the MergeMultiplePdfs_MaxAtOnce restriction. The files are merged in groups of at most DocumentsPerRound files into temporary files on disk, which are merged again until a single document remains, so memory use does not grow with the number of files.
+ * 
+ * DocumentsPerRound should be at least 2. When empty, 50 files are merged at once.
+ * FilesToMerge should contain at least one file.
+ */
+public class MergeMultiplePdfsInRounds extends CustomJavaAction<java.lang.Boolean>
+{
+	/** @deprecated use com.mendix.utils.ListUtils.map(FilesToMerge, com.mendix.systemwideinterfaces.core.IEntityProxy::getMendixObject) instead. */
+	@java.lang.Deprecated(forRemoval = true)
+	private final java.util.List<IMendixObject> __FilesToMerge;
+	private final java.util.List<system.proxies.FileDocument> FilesToMerge;
+	/** @deprecated use MergedDocument.getMendixObject() instead. */
+	@java.lang.Deprecated(forRemoval = true)
+	private final IMendixObject __MergedDocument;
+	private final system.proxies.FileDocument MergedDocument;
+	private final java.lang.Long DocumentsPerRound;
+
+	public MergeMultiplePdfsInRounds(
+		IContext context,
+		java.util.List<IMendixObject> _filesToMerge,
+		IMendixObject _mergedDocument,
+		java.lang.Long _documentsPerRound
+	)
+	{
+		super(context);
+		this.__FilesToMerge = _filesToMerge;
+		this.FilesToMerge = java.util.Optional.ofNullable(_filesToMerge)
+			.orElse(java.util.Collections.emptyList())
+			.stream()
+			.map(filesToMergeElement -> system.proxies.FileDocument.initialize(getContext(), filesToMergeElement))
+			.collect(java.util.stream.Collectors.toList());
+		this.__MergedDocument = _mergedDocument;
+		this.MergedDocument = _mergedDocument == null ? null : system.proxies.FileDocument.initialize(getContext(), _mergedDocument);
+		this.DocumentsPerRound = _documentsPerRound;
+	}
+
+	@java.lang.Override
+	public java.lang.Boolean executeAction() throws Exception
+	{
+		// BEGIN USER CODE
+		if (this.DocumentsPerRound == null)
+			return Misc.mergePDFInRounds(this.getContext(), this.FilesToMerge, this.MergedDocument.getMendixObject());
+		return Misc.mergePDFInRounds(this.getContext(), this.FilesToMerge, this.MergedDocument.getMendixObject(), this.DocumentsPerRound.intValue());
+		// END USER CODE
+	}
+
+	/**
+	 * Returns a string representation of this action
+	 * @return a string representation of this action
+	 */
+	@java.lang.Override
+	public java.lang.String toString()
+	{
+		return "MergeMultiplePdfsInRounds";
+	}
+
+	// BEGIN EXTRA CODE
+	// END EXTRA CODE
+}
@@ -0,0 +1,79 @@
+// This file was generated by Mendix Studio Pro.
+//
+// WARNING: Only the following code will be retained when actions are regenerated:
+// - the import list
+// - the code between BEGIN USER CODE and END USER CODE
+// - the code between BEGIN EXTRA CODE and END EXTRA CODE
+// Other code you write will be lost the next time you deploy the project.
+// Special characters, e.g., é, ö, à, etc. are supported in comments.
+
+package communitycommons.actions;
+
+import com.mendix.systemwideinterfaces.core.IMendixObject;
+import communitycommons.LineBatchProcessor;
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.webui.CustomJavaAction;
+
+/**
+ * Reads a text file line by line and invokes a microflow for every batch of lines. The file is streamed, so large files can be processed with little memory.
+ * 
+ * Parameters:
+ * - file: The file to read.
+ * - charset: The character set of the file, for example 'ISO-8859-1'. UTF-8 is used if empty.
+ * - microflow: The microflow that should be invoked. Should accept a String parameter named 'Lines', which contains the lines of the batch separated by newlines, and a Long parameter named 'FirstLineNumber', which contains the line number of the first line of the batch, starting at 1. For example:
+ * 'MyFirstModule.ImportLines'
+ * - batchsize: The amount of lines that is passed to a single microflow invocation.
+ * - parallelism: The amount of batches that is processed at the same time. With 1, the batches are processed in order, in the current transaction. With more, every batch is processed in its own transaction, as system user.
+ * 
+ * Returns the number of lines that were processed. Throws an exception if a batch fails; no new batches are started after a failure.
+ */
+public class ProcessFileLinesInBatches extends CustomJavaAction<java.lang.Long>
+{
+	/** @deprecated use file.getMendixObject() instead. */
+	@java.lang.Deprecated(forRemoval = true)
+	private final IMendixObject __file;
+	private final system.proxies.FileDocument file;
+	private final java.lang.String charset;
+	private final java.lang.String microflow;
+	private final java.lang.Long batchsize;
+	private final java.lang.Long parallelism;
+
+	public ProcessFileLinesInBatches(
+		IContext context,
+		IMendixObject _file,
+		java.lang.String _charset,
+		java.lang.String _microflow,
+		java.lang.Long _batchsize,
+		java.lang.Long _parallelism
+	)
+	{
+		super(context);
+		this.__file = _file;
+		this.file = _file == null ? null : system.proxies.FileDocument.initialize(getContext(), _file);
+		this.charset = _charset;
+		this.microflow = _microflow;
+		this.batchsize = _batchsize;
+		this.parallelism = _parallelism;
+	}
+
+	@java.lang.Override
+	public java.lang.Long executeAction() throws Exception
+	{
+		// BEGIN USER CODE
+		return LineBatchProcessor.processWithMicroflow(getContext(), file, charset, batchsize.intValue(), parallelism == null ? 1 : parallelism.intValue(), microflow);
+		// END USER CODE
+	}
+
+	/**
+	 * Returns a string representation of this action
+	 * @return a string representation of this action
+	 */
+	@java.lang.Override
+	public java.lang.String toString()
+	{
+		return "ProcessFileLinesInBatches";
+	}
+
+	// BEGIN EXTRA CODE
+	// END EXTRA CODE
+}
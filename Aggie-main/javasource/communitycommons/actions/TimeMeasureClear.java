@@ -0,0 +1,56 @@
+// This file was generated by Mendix Studio Pro.
+//
+// WARNING: Only the following code will be retained when actions are regenerated:
+// - the import list
+// - the code between BEGIN USER CODE and END USER CODE
+// - the code between BEGIN EXTRA CODE and END EXTRA CODE
+// Other code you write will be lost the next time you deploy the project.
+// Special characters, e.g., é, ö, à, etc. are supported in comments.
+
+package communitycommons.actions;
+
+import communitycommons.Logging;
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.webui.CustomJavaAction;
+
+/**
+ * Stops a timer that was started with TimeMeasureClear in the current microflow, without logging it.
+ * - TimerName. Should correspond to the TimerName used in TimeMeasureClear.
+ * 
+ * TimeMeasureEnd does not stop the timer, so it can be ended again to measure laps. Use this function when the timer is no longer needed, so that TimeMeasureEnd in another microflow can take over the timer of a task that is still running.
+ * Returns whether the timer was running.
+ */
+public class TimeMeasureClear extends CustomJavaAction<java.lang.Boolean>
+{
+	private final java.lang.String TimerName;
+
+	public TimeMeasureClear(
+		IContext context,
+		java.lang.String _timerName
+	)
+	{
+		super(context);
+		this.TimerName = _timerName;
+	}
+
+	@java.lang.Override
+	public java.lang.Boolean executeAction() throws Exception
+	{
+		// BEGIN USER CODE
+		return Logging.measureClear(TimerName);
+		// END USER CODE
+	}
+
+	/**
+	 * Returns a string representation of this action
+	 * @return a string representation of this action
+	 */
+	@java.lang.Override
+	public java.lang.String toString()
+	{
+		return "TimeMeasureClear";
+	}
+
+	// BEGIN EXTRA CODE
+	// END EXTRA CODE
+}
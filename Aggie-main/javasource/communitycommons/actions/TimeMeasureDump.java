@@ -0,0 +1,59 @@
+// This file was generated by Mendix Studio Pro.
+//
+// WARNING: Only the following code will be retained when actions are regenerated:
+// - the import list
+// - the code between BEGIN USER CODE and END USER CODE
+// - the code between BEGIN EXTRA CODE and END EXTRA CODE
+// Other code you write will be lost the next time you deploy the project.
+// Special characters, e.g., é, ö, à, etc. are supported in comments.
+
+package communitycommons.actions;
+
+import communitycommons.TimerStatistics;
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.webui.CustomJavaAction;
+
+/**
+ * Prints the statistics of all timers to the log: the number of measurements and the mean, p50, p95, p99 and maximum duration since the previous reset.
+ * - LogLevel. The loglevel used to print the statistics.
+ * - Reset. Whether to start counting again after printing.
+ * 
+ * Returns the printed lines.
+ */
+public class TimeMeasureDump extends CustomJavaAction<java.lang.String>
+{
+	private final communitycommons.proxies.LogLevel Loglevel;
+	private final java.lang.Boolean Reset;
+
+	public TimeMeasureDump(
+		IContext context,
+		java.lang.String _loglevel,
+		java.lang.Boolean _reset
+	)
+	{
+		super(context);
+		this.Loglevel = _loglevel == null ? null : communitycommons.proxies.LogLevel.valueOf(_loglevel);
+		this.Reset = _reset;
+	}
+
+	@java.lang.Override
+	public java.lang.String executeAction() throws Exception
+	{
+		// BEGIN USER CODE
+		return String.join("\n", TimerStatistics.dump(Loglevel, Reset.booleanValue()));
+		// END USER CODE
+	}
+
+	/**
+	 * Returns a string representation of this action
+	 * @return a string representation of this action
+	 */
+	@java.lang.Override
+	public java.lang.String toString()
+	{
+		return "TimeMeasureDump";
+	}
+
+	// BEGIN EXTRA CODE
+	// END EXTRA CODE
+}
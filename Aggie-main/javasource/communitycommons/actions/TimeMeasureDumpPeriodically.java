@@ -0,0 +1,58 @@
+// This file was generated by Mendix Studio Pro.
+//
+// WARNING: Only the following code will be retained when actions are regenerated:
+// - the import list
+// - the code between BEGIN USER CODE and END USER CODE
+// - the code between BEGIN EXTRA CODE and END EXTRA CODE
+// Other code you write will be lost the next time you deploy the project.
+// Special characters, e.g., é, ö, à, etc. are supported in comments.
+
+package communitycommons.actions;
+
+import communitycommons.TimerStatistics;
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.webui.CustomJavaAction;
+
+/**
+ * Prints and resets the statistics of all timers every interval, see TimeMeasureDump. Call this action from the after startup microflow.
+ * - IntervalSeconds. Seconds between two dumps. 0 stops printing.
+ * - LogLevel. The loglevel used to print the statistics.
+ */
+public class TimeMeasureDumpPeriodically extends CustomJavaAction<java.lang.Boolean>
+{
+	private final java.lang.Long IntervalSeconds;
+	private final communitycommons.proxies.LogLevel Loglevel;
+
+	public TimeMeasureDumpPeriodically(
+		IContext context,
+		java.lang.Long _intervalSeconds,
+		java.lang.String _loglevel
+	)
+	{
+		super(context);
+		this.IntervalSeconds = _intervalSeconds;
+		this.Loglevel = _loglevel == null ? null : communitycommons.proxies.LogLevel.valueOf(_loglevel);
+	}
+
+	@java.lang.Override
+	public java.lang.Boolean executeAction() throws Exception
+	{
+		// BEGIN USER CODE
+		TimerStatistics.dumpPeriodically(IntervalSeconds, Loglevel);
+		return true;
+		// END USER CODE
+	}
+
+	/**
+	 * Returns a string representation of this action
+	 * @return a string representation of this action
+	 */
+	@java.lang.Override
+	public java.lang.String toString()
+	{
+		return "TimeMeasureDumpPeriodically";
+	}
+
+	// BEGIN EXTRA CODE
+	// END EXTRA CODE
+}
@@ -0,0 +1,65 @@
+// This file was generated by Mendix Studio Pro.
+//
+// WARNING: Only the following code will be retained when actions are regenerated:
+// - the import list
+// - the code between BEGIN USER CODE and END USER CODE
+// - the code between BEGIN EXTRA CODE and END EXTRA CODE
+// Other code you write will be lost the next time you deploy the project.
+// Special characters, e.g., é, ö, à, etc. are supported in comments.
+
+package communitycommons.actions;
+
+import communitycommons.Misc;
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.webui.CustomJavaAction;
+
+/**
+ * Deletes all objects of the xpath query on multiple threads. The id range of the objects is divided into partitions, which are deleted in batches, each partition in its own transaction.
+ * 
+ * Returns the number of deleted objects. With DryRun, nothing is deleted and the number of objects that would be deleted is returned.
+ */
+public class deleteInPartitions extends CustomJavaAction<java.lang.Long>
+{
+	private final java.lang.String xpath;
+	private final java.lang.Long batchsize;
+	private final java.lang.Long parallelism;
+	private final java.lang.Boolean dryRun;
+
+	public deleteInPartitions(
+		IContext context,
+		java.lang.String _xpath,
+		java.lang.Long _batchsize,
+		java.lang.Long _parallelism,
+		java.lang.Boolean _dryRun
+	)
+	{
+		super(context);
+		this.xpath = _xpath;
+		this.batchsize = _batchsize;
+		this.parallelism = _parallelism;
+		this.dryRun = _dryRun;
+	}
+
+	@java.lang.Override
+	public java.lang.Long executeAction() throws Exception
+	{
+		// BEGIN USER CODE
+		if (batchsize == null)
+			throw new IllegalArgumentException("deleteInPartitions: batchsize should be set");
+		return Misc.deleteInPartitions(xpath, batchsize.intValue(), parallelism == null ? 1 : parallelism.intValue(), Boolean.TRUE.equals(dryRun));
+		// END USER CODE
+	}
+
+	/**
+	 * Returns a string representation of this action
+	 * @return a string representation of this action
+	 */
+	@java.lang.Override
+	public java.lang.String toString()
+	{
+		return "deleteInPartitions";
+	}
+
+	// BEGIN EXTRA CODE
+	// END EXTRA CODE
+}
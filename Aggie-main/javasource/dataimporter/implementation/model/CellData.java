@@ -1,35 +1,67 @@
 package dataimporter.implementation.model;
 
+import dataimporter.implementation.utils.ColumnDictionary;
+
 import java.util.Objects;
 
 public class CellData {
+    // raw data of encoded cells whose raw value is the encoded value, it is decoded from the dictionary instead
+    private static final Object ENCODED_VALUE = new Object();
+
     private final int columnIndex;
     private final String columnHeader;
     private final Object rawData;
     private final String displayMask;
     private final Object formattedData;
     private final short dataFormat;
+    private final ColumnDictionary dictionary;
+    private final int valueCode;
 
     public CellData(int columnIndex, String columnHeader, Object rawData, Object formattedData) {
         this(columnIndex, columnHeader, rawData, formattedData, null, (short) 0);
     }
 
     public CellData(int columnIndex, String columnHeader, Object rawData, Object formattedData, String displayMask, short dataFormat) {
+        this(columnIndex, columnHeader, rawData, formattedData, displayMask, dataFormat, null, ColumnDictionary.NO_CODE);
+    }
+
+    private CellData(int columnIndex, String columnHeader, Object rawData, Object formattedData, String displayMask, short dataFormat, ColumnDictionary dictionary, int valueCode) {
         this.columnIndex = columnIndex;
         this.columnHeader = columnHeader;
         this.rawData = rawData;
         this.formattedData = formattedData;
         this.displayMask = displayMask;
         this.dataFormat = dataFormat;
+        this.dictionary = dictionary;
+        this.valueCode = valueCode;
+    }
+
+    /**
+     * Creates a string cell whose value is encoded in the dictionary of its column. For Excel cells the formatted
+     * value is encoded, for CSV cells (without formatted value) the raw value. When the raw value is the encoded value,
+     * it is not stored but decoded from the dictionary.
+     */
+    public static CellData encoded(int columnIndex, String columnHeader, String rawData, String formattedData, ColumnDictionary dictionary) {
+        final int valueCode = dictionary.encode(formattedData != null ? formattedData : rawData);
+        if (valueCode == ColumnDictionary.NO_CODE) {
+            return new CellData(columnIndex, columnHeader, rawData, formattedData);
+        }
+        if (formattedData == null) {
+            return new CellData(columnIndex, columnHeader, ENCODED_VALUE, null, null, (short) 0, dictionary, valueCode);
+        }
+        final String value = dictionary.decode(valueCode);
+        return new CellData(columnIndex, columnHeader, value.equals(rawData) ? ENCODED_VALUE : rawData, value, null, (short) 0, dictionary, valueCode);
     }
 
     public CellData(CellData cellData) {
         this.columnIndex = cellData.getColumnIndex();
         this.columnHeader = cellData.getColumnHeader();
-        this.rawData = cellData.getRawData();
+        this.rawData = cellData.rawData;
         this.formattedData = cellData.getFormattedData();
         this.displayMask = cellData.getDisplayMask();
         this.dataFormat = cellData.getDataFormat();
+        this.dictionary = cellData.getDictionary();
+        this.valueCode = cellData.getValueCode();
     }
 
     public int getColumnIndex() {
@@ -41,7 +73,7 @@ public class CellData {
     }
 
     public Object getRawData() {
-        return rawData;
+        return rawData == ENCODED_VALUE ? dictionary.decode(valueCode) : rawData;
     }
 
     public String getDisplayMask() {
@@ -56,10 +88,25 @@ public class CellData {
         return dataFormat;
     }
 
+    public ColumnDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @return the code of the value in the dictionary of this column, or {@link ColumnDictionary#NO_CODE}
+     */
+    public int getValueCode() {
+        return valueCode;
+    }
+
+    public boolean isEncoded() {
+        return dictionary != null && valueCode != ColumnDictionary.NO_CODE;
+    }
+
 
     @Override
     public int hashCode() {
-        return columnIndex + 31 * Objects.hash(rawData, displayMask, formattedData);
+        return columnIndex + 31 * Objects.hash(getRawData(), displayMask, formattedData);
     }
 
     @Override
@@ -69,7 +116,7 @@ public class CellData {
         CellData that = (CellData) o;
         return columnIndex == that.columnIndex &&
                 columnHeader == that.columnHeader &&
-                Objects.equals(rawData, that.rawData) &&
+                Objects.equals(getRawData(), that.getRawData()) &&
                 Objects.equals(displayMask, that.displayMask) &&
                 Objects.equals(formattedData, that.formattedData) &&
                 Objects.equals(dataFormat, this.dataFormat);
@@ -80,7 +127,7 @@ public class CellData {
         return "CellData{ " +
                 "colNo=" + columnIndex +
                 ", colName=" + columnHeader +
-                ", rawData=" + rawData +
+                ", rawData=" + getRawData() +
                 ", formattedData=" + formattedData +
                 ", displayMask='" + displayMask + '\'' +
                 ", dataFormat=" + dataFormat +
@@ -3,6 +3,7 @@ package dataimporter.implementation.service;
 import dataimporter.implementation.model.CellData;
 import dataimporter.implementation.model.RowData;
 import dataimporter.implementation.model.TableData;
+import dataimporter.implementation.utils.ColumnDictionary;
 import dataimporter.implementation.utils.DataImporterRuntimeException;
 import dataimporter.implementation.utils.DataImporterUtils;
 import org.apache.commons.csv.CSVFormat;
@@ -12,7 +13,9 @@ import org.apache.commons.csv.CSVRecord;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -27,10 +30,11 @@ public class CsvDataReader {
         var csvFileFormat = getCsvFormat(delimiter, quoteCharacter, escapeCharacter);
         List<RowData> rowDataList = new ArrayList<>();
         var headerRow = new RowData();
+        Map<Integer, ColumnDictionary> dictionaries = new HashMap<>();
         var rowCounter = 1;
         try (var csvFileParser = CSVParser.parse(csvFile, StandardCharsets.UTF_8, csvFileFormat)) {
             for (CSVRecord csvRecord : csvFileParser) {
-                List<CellData> cellDataList = createCellDataList(addHeaderRow, headerRow, csvRecord);
+                List<CellData> cellDataList = createCellDataList(addHeaderRow, headerRow, csvRecord, dictionaries);
                 if (csvRecord.getRecordNumber() == 1) {
                     checkHeaders(headerNames, cellDataList);
                     //Adds cell data to header list
@@ -74,7 +78,7 @@ public class CsvDataReader {
         }
     }
 
-    private List<CellData> createCellDataList(boolean addHeaderRow, RowData headerRow, CSVRecord csvRecord) {
+    private List<CellData> createCellDataList(boolean addHeaderRow, RowData headerRow, CSVRecord csvRecord, Map<Integer, ColumnDictionary> dictionaries) {
         List<CellData> cellDataList = new ArrayList<>();
         for (var i = 0; i < csvRecord.size(); ++i) {
             CellData cellData;
@@ -83,7 +87,7 @@ public class CsvDataReader {
                 var headerName = csvRecord.get(i) ==  null ? csvRecord.get(i) : csvRecord.get(i).trim();
                 cellData = new CellData(i, addHeaderRow ? String.valueOf(i + 1) : headerName, csvRecord.get(i), null);
             } else {
-                cellData = new CellData(i, headerRow.getCellData().get(i).getColumnHeader(), csvRecord.get(i), null);
+                cellData = CellData.encoded(i, headerRow.getCellData().get(i).getColumnHeader(), csvRecord.get(i), null, dictionaries.computeIfAbsent(i, index -> new ColumnDictionary()));
             }
             cellDataList.add(cellData);
         }
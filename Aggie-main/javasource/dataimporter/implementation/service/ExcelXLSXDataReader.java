@@ -1,6 +1,7 @@
 package dataimporter.implementation.service;
 
 import dataimporter.implementation.model.CellData;
+import dataimporter.implementation.utils.ColumnDictionary;
 import dataimporter.implementation.utils.DataImporterRuntimeException;
 import dataimporter.implementation.utils.DataImporterUtils;
 import dataimporter.implementation.utils.ExtendedXSSFSheetXMLHandler;
@@ -26,7 +27,9 @@ import javax.xml.parsers.ParserConfigurationException;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 public class ExcelXLSXDataReader {
@@ -141,6 +144,7 @@ public class ExcelXLSXDataReader {
     private static ExtendedXSSFSheetXMLHandler.SheetContentsHandler createSheetHandlerForData(int startRowIndex, List<List<CellData>> dataRow, List<CellData> headerRowData, String sheetName, boolean isDate1904) {
         return new ExtendedXSSFSheetXMLHandler.SheetContentsHandler() {
             final List<CellData> data = new ArrayList<>();
+            final Map<Integer, ColumnDictionary> dictionaries = new HashMap<>();
             boolean isNewRowStarted = false;
 
             int rowNo;
@@ -218,11 +222,15 @@ public class ExcelXLSXDataReader {
             }
 
             private void handleFormulaCell(int columnIndex, String columnHeader, String rawValue) {
-                data.add(new CellData(columnIndex, columnHeader, rawValue, rawValue));
+                data.add(CellData.encoded(columnIndex, columnHeader, rawValue, rawValue, getDictionary(columnIndex)));
             }
 
             private void handleStringCell(int columnIndex, String columnHeader, String rawValue, String formattedValue) {
-                data.add(new CellData(columnIndex, columnHeader, rawValue, formattedValue));
+                data.add(CellData.encoded(columnIndex, columnHeader, rawValue, formattedValue, getDictionary(columnIndex)));
+            }
+
+            private ColumnDictionary getDictionary(int columnIndex) {
+                return dictionaries.computeIfAbsent(columnIndex, i -> new ColumnDictionary());
             }
 
             private void handleNumericCell(String cellReference, int columnIndex, String columnHeader, String rawValue, String formattedValue, String formatString, short dataFormat) {
@@ -21,6 +21,15 @@ public class DataTypeConversionUtils {
     public static Object getConvertedData(CellData cellData, FileType fileType, IMetaPrimitive.PrimitiveType targetType) {
         var data = fileType.equals(FileType.EXCEL) ? cellData.getFormattedData() : cellData.getRawData();
 
+        // Encoded cells share their converted value with every other cell of the same code. Dates are mutable, so
+        // those are converted every time.
+        if (cellData.isEncoded() && targetType != IMetaPrimitive.PrimitiveType.DateTime) {
+            return cellData.getDictionary().convert(cellData.getValueCode(), targetType, () -> convert(cellData, data, targetType));
+        }
+        return convert(cellData, data, targetType);
+    }
+
+    private static Object convert(CellData cellData, Object data, IMetaPrimitive.PrimitiveType targetType) {
         switch (targetType) {
             case String:
                 return convertToString(cellData, data, targetType);
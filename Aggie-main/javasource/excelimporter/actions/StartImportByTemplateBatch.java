@@ -0,0 +1,99 @@
+// This file was generated by Mendix Studio Pro.
+//
+// WARNING: Only the following code will be retained when actions are regenerated:
+// - the import list
+// - the code between BEGIN USER CODE and END USER CODE
+// - the code between BEGIN EXTRA CODE and END EXTRA CODE
+// Other code you write will be lost the next time you deploy the project.
+// Special characters, e.g., é, ö, à, etc. are supported in comments.
+
+package excelimporter.actions;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import com.mendix.core.CoreException;
+import com.mendix.systemwideinterfaces.core.IMendixObject;
+import excelimporter.reader.ExcelImportResult;
+import excelimporter.reader.ExcelImporter;
+import com.mendix.systemwideinterfaces.core.IContext;
+import com.mendix.webui.CustomJavaAction;
+
+/**
+ * Start the excel import for a list of documents, all using the same template. The files are imported concurrently, each in its own transaction, with at most MaxConcurrentImports imports running at the same time. Keep this number low enough to not saturate the database; when empty the files are imported one by one.
+ * 
+ * The last parameter is the ImportObjectParameter, when an 'reference to imported object' is configured this parameter should containt the object to which all objects should refer to.This parameter is optional and can be left empty.
+ * 
+ * The result of every file is logged once all imports are completed. The return value is the total number of imported rows; when one or more files could not be imported an exception listing those files is thrown after the other files have been imported.
+ */
+public class StartImportByTemplateBatch extends CustomJavaAction<java.lang.Long>
+{
+	/** @deprecated use TemplateObject.getMendixObject() instead. */
+	@java.lang.Deprecated(forRemoval = true)
+	private final IMendixObject __TemplateObject;
+	private final excelimporter.proxies.Template TemplateObject;
+	/** @deprecated use com.mendix.utils.ListUtils.map(ImportExcelDocs, com.mendix.systemwideinterfaces.core.IEntityProxy::getMendixObject) instead. */
+	@java.lang.Deprecated(forRemoval = true)
+	private final java.util.List<IMendixObject> __ImportExcelDocs;
+	private final java.util.List<system.proxies.FileDocument> ImportExcelDocs;
+	private final IMendixObject ImportObjectParameter;
+	private final java.lang.Long MaxConcurrentImports;
+
+	public StartImportByTemplateBatch(
+		IContext context,
+		IMendixObject _templateObject,
+		java.util.List<IMendixObject> _importExcelDocs,
+		IMendixObject _importObjectParameter,
+		java.lang.Long _maxConcurrentImports
+	)
+	{
+		super(context);
+		this.__TemplateObject = _templateObject;
+		this.TemplateObject = _templateObject == null ? null : excelimporter.proxies.Template.initialize(getContext(), _templateObject);
+		this.__ImportExcelDocs = _importExcelDocs;
+		this.ImportExcelDocs = java.util.Optional.ofNullable(_importExcelDocs)
+			.orElse(java.util.Collections.emptyList())
+			.stream()
+			.map(importExcelDocsElement -> system.proxies.FileDocument.initialize(getContext(), importExcelDocsElement))
+			.collect(java.util.stream.Collectors.toList());
+		this.ImportObjectParameter = _importObjectParameter;
+		this.MaxConcurrentImports = _maxConcurrentImports;
+	}
+
+	@java.lang.Override
+	public java.lang.Long executeAction() throws Exception
+	{
+		// BEGIN USER CODE
+		if( this.TemplateObject == null )
+			throw new CoreException( "No template" );
+		if( this.ImportExcelDocs.isEmpty() )
+			throw new CoreException( "No excel documents" );
+
+		final int maxConcurrency = this.MaxConcurrentImports == null ? 1 : this.MaxConcurrentImports.intValue();
+		final List<ExcelImportResult> results = ExcelImporter.startBatchImport(this.getContext(), this.TemplateObject.getMendixObject(),
+				this.ImportExcelDocs.stream().map(system.proxies.FileDocument::getMendixObject).collect(Collectors.toList()),
+				this.ImportObjectParameter, maxConcurrency );
+
+		final String failedFiles = results.stream()
+				.filter(result -> !result.isSuccess())
+				.map(ExcelImportResult::getFileName)
+				.collect(Collectors.joining(", "));
+		if( !failedFiles.isEmpty() )
+			throw new CoreException( "The following documents could not be imported: " + failedFiles );
+
+		return results.stream().mapToLong(ExcelImportResult::getRowCount).sum();
+		// END USER CODE
+	}
+
+	/**
+	 * Returns a string representation of this action
+	 * @return a string representation of this action
+	 */
+	@java.lang.Override
+	public java.lang.String toString()
+	{
+		return "StartImportByTemplateBatch";
+	}
+
+	// BEGIN EXTRA CODE
+	// END EXTRA CODE
+}
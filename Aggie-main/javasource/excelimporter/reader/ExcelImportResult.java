@@ -0,0 +1,39 @@
+package excelimporter.reader;
+
+/**
+ * Outcome of importing a single file document as part of a batch import.
+ */
+public class ExcelImportResult {
+	private final String fileName;
+	private final long rowCount;
+	private final Exception error;
+
+	ExcelImportResult(String fileName, long rowCount, Exception error) {
+		this.fileName = fileName;
+		this.rowCount = rowCount;
+		this.error = error;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	public Exception getError() {
+		return error;
+	}
+
+	public boolean isSuccess() {
+		return error == null;
+	}
+
+	@Override
+	public String toString() {
+		return isSuccess()
+				? "ExcelImportResult{fileName='" + fileName + "', rowCount=" + rowCount + "}"
+				: "ExcelImportResult{fileName='" + fileName + "', error='" + error.getMessage() + "'}";
+	}
+}
@@ -1,10 +1,15 @@
 package excelimporter.reader;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import system.proxies.FileDocument;
 
@@ -128,4 +133,68 @@ public class ExcelImporter {
 		}
 		return 0L;
 	}
+
+	/**
+	 * Import several file documents using the same template. At most maxConcurrency files are imported at the same time,
+	 * each in its own context and transaction and with its own replication settings, so a failing file does not roll back the others.
+	 *
+	 * @param context
+	 * @param template
+	 * @param templateDocuments
+	 * @param parentObject the object to which the objects to be imported, must be associated.
+	 * @param maxConcurrency the maximum number of files imported in parallel, values below 1 are treated as 1.
+	 * @return the result per file document, in the same order as the file documents.
+	 */
+	public static List<ExcelImportResult> startBatchImport(IContext context, IMendixObject template, List<IMendixObject> templateDocuments, IMendixObject parentObject, int maxConcurrency) throws CoreException {
+		if (template == null)
+			throw new CoreException("Template not found!");
+
+		final List<ExcelImportResult> results = new ArrayList<>(templateDocuments.size());
+		if (templateDocuments.isEmpty())
+			return results;
+
+		final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(maxConcurrency, templateDocuments.size())));
+		try {
+			final List<Future<ExcelImportResult>> futures = new ArrayList<>(templateDocuments.size());
+			for (IMendixObject templateDocument : templateDocuments) {
+				futures.add(executor.submit(() -> importInOwnTransaction(context, template, templateDocument, parentObject)));
+			}
+
+			for (Future<ExcelImportResult> future : futures) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CoreException("Interrupted while waiting for the batch import to finish", e);
+		} catch (ExecutionException e) {
+			throw new CoreException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (ExcelImportResult result : results) {
+			if (result.isSuccess())
+				ExcelReader.logNode.info("Batch import of " + result.getFileName() + " finished, imported " + result.getRowCount() + " rows");
+			else
+				ExcelReader.logNode.error("Batch import of " + result.getFileName() + " failed, because: " + result.getError().getMessage());
+		}
+		return results;
+	}
+
+	private static ExcelImportResult importInOwnTransaction(IContext context, IMendixObject template, IMendixObject templateDocument, IMendixObject parentObject) {
+		final String fileName = templateDocument.getValue(context, "Name");
+		IContext fileContext = (context.getSession() != null) ? context.getSession().createContext() : Core.createSystemContext();
+		if (context.isSudo())
+			fileContext = fileContext.createSudoClone();
+
+		fileContext.startTransaction();
+		try {
+			final long rowCount = startImport(fileContext, template, templateDocument, parentObject);
+			fileContext.endTransaction();
+			return new ExcelImportResult(fileName, rowCount, null);
+		} catch (Exception e) {
+			fileContext.rollbackTransaction();
+			return new ExcelImportResult(fileName, 0L, e);
+		}
+	}
 }
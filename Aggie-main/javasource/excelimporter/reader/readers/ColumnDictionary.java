@@ -0,0 +1,106 @@
+package excelimporter.reader.readers;
+
+import com.mendix.systemwideinterfaces.core.meta.IMetaPrimitive.PrimitiveType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded dictionary for the string values of a single column of one import. Repeated values are canonicalized to a
+ * single String instance and get a stable int code, which is carried on the cell data so the converted value can be
+ * reused for every other cell with the same code.
+ * Once the dictionary is full, new values are no longer encoded, so high cardinality columns cost at most one lookup
+ * per cell. Instances are not thread safe; every import creates its own dictionaries.
+ */
+public class ColumnDictionary {
+    public static final int NO_CODE = -1;
+    public static final int DEFAULT_MAX_SIZE = 4096;
+
+    private static final int INITIAL_CONVERTED_SIZE = 16;
+    private static final Object NOT_CONVERTED = new Object();
+
+    private final int maxSize;
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private final Map<PrimitiveType, Object[]> converted = new EnumMap<>(PrimitiveType.class);
+
+    public ColumnDictionary() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public ColumnDictionary(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the code of the value, or {@link #NO_CODE} when the value is null or the dictionary is full
+     */
+    public int encode(String value) {
+        if (value == null)
+            return NO_CODE;
+        final Integer code = codes.get(value);
+        if (code != null)
+            return code;
+        if (values.size() >= maxSize)
+            return NO_CODE;
+
+        values.add(value);
+        codes.put(value, values.size() - 1);
+        return values.size() - 1;
+    }
+
+    public String decode(int code) {
+        return values.get(code);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Returns the value previously converted for this code and type, or converts it once and remembers the result.
+     * Failed conversions are not remembered, so every cell still reports its own error.
+     */
+    public <E extends Exception> Object convert(int code, PrimitiveType type, Converter<E> converter) throws E {
+        if (code < 0 || code >= values.size())
+            return converter.convert();
+
+        Object[] convertedValues = converted.get(type);
+        if (convertedValues == null || code >= convertedValues.length) {
+            convertedValues = grow(convertedValues, code);
+            converted.put(type, convertedValues);
+        }
+
+        Object value = convertedValues[code];
+        if (value == NOT_CONVERTED) {
+            value = converter.convert();
+            convertedValues[code] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Grows the converted values of a type with the dictionary instead of allocating maxSize slots up front, most
+     * columns only hold a handful of distinct values.
+     */
+    private Object[] grow(Object[] convertedValues, int code) {
+        final int oldLength = convertedValues == null ? 0 : convertedValues.length;
+        int length = Math.max(oldLength, INITIAL_CONVERTED_SIZE);
+        while (length <= code)
+            length *= 2;
+        length = Math.min(length, maxSize);
+
+        final Object[] grown = convertedValues == null ? new Object[length] : Arrays.copyOf(convertedValues, length);
+        Arrays.fill(grown, oldLength, length, NOT_CONVERTED);
+        return grown;
+    }
+
+    @FunctionalInterface
+    public interface Converter<E extends Exception> {
+        Object convert() throws E;
+    }
+}
@@ -9,6 +9,8 @@ import org.xml.sax.SAXException;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Spliterator;
 import java.util.function.Predicate;
 import java.util.stream.StreamSupport;
@@ -22,9 +24,10 @@ public class ExcelDataReader {
 
         try (Workbook workbook = WorkbookFactory.create(new File(excelFile))) {
             Sheet sheet = workbook.getSheetAt(sheetIndex);
+            final Map<Integer, ColumnDictionary> dictionaries = new HashMap<>();
             StreamSupport.stream(sheet.spliterator(), false).forEach(row -> {
                 // Check that at least one value is present, we want to skip blank lines
-                ExcelCellData[] values = readRow(row.spliterator(), isColumnUsed);
+                ExcelCellData[] values = readRow(row.spliterator(), isColumnUsed, dictionaries);
                 var processRow = false;
                 for (Object value : values) {
                     if (value != null) {
@@ -56,7 +59,7 @@ public class ExcelDataReader {
         }
     }
 
-    private static ExcelCellData[] readRow(Spliterator<Cell> cellIterator, Predicate<String> isColumnUsed) {
+    private static ExcelCellData[] readRow(Spliterator<Cell> cellIterator, Predicate<String> isColumnUsed, Map<Integer, ColumnDictionary> dictionaries) {
         final ArrayList<ExcelCellData> data = new ArrayList<>();
         StreamSupport.stream(cellIterator, false).forEach(cell -> {
             // add skipped columns
@@ -68,7 +71,7 @@ public class ExcelDataReader {
             // add column
             final Object rawData = getValue(cell, cell.getCellType());
             final ExcelCellData cellData = ((rawData != null) && isColumnUsed.test(String.valueOf(columnIndex)))
-                    ? evaluateCellData(cell, rawData.toString())
+                    ? evaluateCellData(cell, rawData.toString(), dictionaries)
                     : null;
             data.add(cellData);
         });
@@ -96,7 +99,7 @@ public class ExcelDataReader {
         }
     }
 
-    private static ExcelCellData evaluateCellData(Cell cell, String cellValueString) {
+    private static ExcelCellData evaluateCellData(Cell cell, String cellValueString, Map<Integer, ColumnDictionary> dictionaries) {
         if (ExcelReader.logNode.isTraceEnabled())
             ExcelReader.logNode.trace("Reading " + cell.getAddress() + " / '" + cellValueString + "' / " + cell.getCellType());
 
@@ -113,10 +116,10 @@ public class ExcelDataReader {
                     ExcelReader.logNode.error("Unable to import data due to invalid formula at cell address " + cell.getAddress());
                     throw new ExcelRuntimeException("Unable to import data due to invalid formula at Excel row #" + (cell.getRow().getRowNum() + 1));
                 }
-                return new ExcelCellData(columnIndex, cellValueString, cellValueString);
+                return ExcelCellData.encoded(columnIndex, cellValueString, cellValueString, dictionaries.computeIfAbsent(columnIndex, i -> new ColumnDictionary()));
             case STRING: // We haven't seen this yet.
                 XSSFRichTextString rtsi = new XSSFRichTextString(cellValueString);
-                return new ExcelCellData(columnIndex, cellValueString, rtsi.toString());
+                return ExcelCellData.encoded(columnIndex, cellValueString, rtsi.toString(), dictionaries.computeIfAbsent(columnIndex, i -> new ColumnDictionary()));
             case NUMERIC:
                 final String formatString = cell.getCellStyle().getDataFormatString();
                 if (formatString != null) {
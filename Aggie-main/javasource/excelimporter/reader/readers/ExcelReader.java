@@ -28,6 +28,7 @@ import excelimporter.proxies.ReferenceHandlingEnum;
 import excelimporter.proxies.ReferenceKeyType;
 import excelimporter.proxies.RemoveIndicator;
 import excelimporter.proxies.Template;
+import excelimporter.reader.readers.replication.CachingValueParser;
 import excelimporter.reader.readers.replication.ExcelReplicationSettings;
 import mxmodelreflection.proxies.MxObjectMember;
 import mxmodelreflection.proxies.MxObjectReference;
@@ -71,6 +72,7 @@ public class ExcelReader {
     private static final String VALUE_STR = "=$value]";
 
     private static final String VALUE = "value";
+    private static final String CACHE_PARSED_VALUES = "CacheParsedValues";
     private long rowCount = 0L;
 
     public ExcelReader(IContext context, IMendixObject template) throws CoreException {
@@ -214,10 +216,7 @@ public class ExcelReader {
                         ? KeyType.ObjectKey : KeyType.NoKey;
                 final boolean isCaseSensitive = "Yes".equals(columnObject.getValue(settings.getContext(), Column.MemberNames.CaseSensitive.toString()));
 
-                final IMendixIdentifier microflow = columnObject.getValue(settings.getContext(), Column.MemberNames.Column_Microflows.toString());
-                final ICustomValueParser parser = (microflow != null)
-                        ? new MFValueParser(settings.getContext(), Core.retrieveId(settings.getContext(), microflow))
-                        : null;
+                final ICustomValueParser parser = createValueParser(settings.getContext(), columnObject);
 
                 final IMendixIdentifier memberId = columnObject.getValue(settings.getContext(), Column.MemberNames.Column_MxObjectMember.toString());
                 final IMendixObject memberObject = Core.retrieveId(settings.getContext(), memberId);
@@ -254,10 +253,7 @@ public class ExcelReader {
 
                 final boolean isCaseSensitive = "Yes".equals(columnObject.getValue(settings.getContext(), Column.MemberNames.CaseSensitive.toString()));
 
-                final IMendixIdentifier microflow = columnObject.getValue(settings.getContext(), Column.MemberNames.Column_Microflows.toString());
-                final ICustomValueParser parser = (microflow != null)
-                        ? new MFValueParser(settings.getContext(), Core.retrieveId(settings.getContext(), microflow))
-                        : null;
+                final ICustomValueParser parser = createValueParser(settings.getContext(), columnObject);
 
                 final IMendixIdentifier memberId = columnObject.getValue(settings.getContext(), Column.MemberNames.Column_MxObjectMember_Reference.toString());
                 final IMendixObject memberObject = Core.retrieveId(settings.getContext(), memberId);
@@ -398,6 +394,23 @@ public class ExcelReader {
         return rowCount;
     }
 
+    /**
+     * Creates the parser for the microflow configured on the column, if any. When the column marks its parse microflow
+     * as deterministic the results are memoized per distinct input value, so the microflow only runs once per value.
+     */
+    private static ICustomValueParser createValueParser(IContext context, IMendixObject columnObject) throws CoreException {
+        final IMendixIdentifier microflow = columnObject.getValue(context, Column.MemberNames.Column_Microflows.toString());
+        if (microflow == null)
+            return null;
+
+        final ICustomValueParser parser = new MFValueParser(context, Core.retrieveId(context, microflow));
+        if (columnObject.hasMember(CACHE_PARSED_VALUES) && Boolean.TRUE.equals(columnObject.getValue(context, CACHE_PARSED_VALUES))) {
+            logNode.debug("Caching parsed values of column: " + columnObject.getValue(context, Column.MemberNames.ColNumber.toString()));
+            return new CachingValueParser(parser);
+        }
+        return parser;
+    }
+
     private static File getExcelFile(IContext context, IMendixObject file) throws IOException {
         final File f = new File(Core.getConfiguration().getTempPath().getAbsolutePath() + "/Mendix_ExcelImporter_" + file.getId().toLong(), "");
         try (InputStream inputstream = Core.getFileDocumentContent(context, file); OutputStream outputstream = new FileOutputStream(f)) {
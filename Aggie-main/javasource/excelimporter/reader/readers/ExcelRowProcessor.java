@@ -10,20 +10,43 @@ public interface ExcelRowProcessor {
     long getRowCounter();
 
     class ExcelCellData {
+        // raw data of encoded cells whose raw value is the formatted value, it is decoded from the dictionary instead
+        private static final Object ENCODED_VALUE = new Object();
+
         private final int columnIndex;
         private final Object rawData;
         private final String displayMask;
         private final Object formattedData;
+        private final ColumnDictionary dictionary;
+        private final int valueCode;
 
         public ExcelCellData(int columnIndex, Object rawData, Object formattedData) {
             this(columnIndex, rawData, formattedData, null);
         }
 
         public ExcelCellData(int columnIndex, Object rawData, Object formattedData, String displayMask) {
+            this(columnIndex, rawData, formattedData, displayMask, null, ColumnDictionary.NO_CODE);
+        }
+
+        /**
+         * Creates a string cell whose formatted value is encoded in the dictionary of its column. When the raw value is
+         * the formatted value, it is not stored but decoded from the dictionary.
+         */
+        public static ExcelCellData encoded(int columnIndex, Object rawData, String formattedData, ColumnDictionary dictionary) {
+            final int valueCode = dictionary.encode(formattedData);
+            if (valueCode == ColumnDictionary.NO_CODE)
+                return new ExcelCellData(columnIndex, rawData, formattedData);
+            final String value = dictionary.decode(valueCode);
+            return new ExcelCellData(columnIndex, value.equals(rawData) ? ENCODED_VALUE : rawData, value, null, dictionary, valueCode);
+        }
+
+        private ExcelCellData(int columnIndex, Object rawData, Object formattedData, String displayMask, ColumnDictionary dictionary, int valueCode) {
             this.columnIndex = columnIndex;
             this.rawData = rawData;
             this.formattedData = formattedData;
             this.displayMask = displayMask;
+            this.dictionary = dictionary;
+            this.valueCode = valueCode;
         }
 
         public String getDisplayMask() {
@@ -39,12 +62,27 @@ public interface ExcelRowProcessor {
         }
 
         public Object getRawData() {
-            return rawData;
+            return rawData == ENCODED_VALUE ? dictionary.decode(valueCode) : rawData;
+        }
+
+        public ColumnDictionary getDictionary() {
+            return dictionary;
+        }
+
+        /**
+         * @return the code of the formatted value in the dictionary of this column, or {@link ColumnDictionary#NO_CODE}
+         */
+        public int getValueCode() {
+            return valueCode;
+        }
+
+        public boolean isEncoded() {
+            return dictionary != null && valueCode != ColumnDictionary.NO_CODE;
         }
 
         @Override
         public int hashCode() {
-            return columnIndex + 31 * Objects.hash(rawData, displayMask, formattedData);
+            return columnIndex + 31 * Objects.hash(getRawData(), displayMask, formattedData);
         }
 
         @Override
@@ -53,7 +91,7 @@ public interface ExcelRowProcessor {
             if (o == null || getClass() != o.getClass()) return false;
             ExcelCellData that = (ExcelCellData) o;
             return columnIndex == that.columnIndex &&
-                    Objects.equals(rawData, that.rawData) &&
+                    Objects.equals(getRawData(), that.getRawData()) &&
                     Objects.equals(displayMask, that.displayMask) &&
                     Objects.equals(formattedData, that.formattedData);
         }
@@ -62,7 +100,7 @@ public interface ExcelRowProcessor {
         public String toString() {
             return "ExcelCellData{" +
                     "colNr=" + columnIndex +
-                    ", rawData=" + rawData +
+                    ", rawData=" + getRawData() +
                     ", displayMask='" + displayMask + '\'' +
                     ", formattedData=" + formattedData +
                     '}';
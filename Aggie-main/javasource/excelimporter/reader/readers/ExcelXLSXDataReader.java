@@ -4,12 +4,15 @@ import com.mendix.core.Core;
 import com.mendix.logging.ILogNode;
 import com.mendix.replication.MendixReplicationException;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.openxml4j.opc.PackagePart;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.DataFormatter;
 import org.apache.poi.ss.util.CellAddress;
 import org.apache.poi.util.XMLHelper;
 import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.model.StylesTable;
 import org.apache.poi.xssf.usermodel.XSSFComment;
 import org.apache.poi.xssf.usermodel.XSSFRelation;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
@@ -21,10 +24,13 @@ import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.function.Predicate;
 
@@ -35,19 +41,34 @@ public class ExcelXLSXDataReader {
     private ExcelXLSXDataReader() {
     }
 
+    /**
+     * Reads the header row without building a workbook: the package is opened read-only, the sheet part is parsed
+     * until the header row has been found, shared strings are only read as far as needed and the styles are only
+     * loaded when a cell has to be formatted.
+     */
     public static List<ExcelColumn> readHeaderRow(File excelFile, int sheetIndex, int headerRowIndex) throws ExcelImporterException {
         List<ExcelColumn> headerRow = new ArrayList<>();
-        parseExcelFile(excelFile, sheetIndex, headerRowIndex, headerRow, 0, null, null);
+        try {
+            var opcPackage = OPCPackage.open(excelFile, PackageAccess.READ);
+            // close() on a read-only package logs a warning, revert() releases it without trying to save
+            try (var strings = new LazySharedStringsTable(opcPackage)) {
+                ContentHandler handler = new ExtendedXSSFSheetXMLHandler(() -> loadStyles(opcPackage), strings,
+                        createSheetHandlerForHeader(headerRowIndex, headerRow), formatter, false);
+                parseSheet(opcPackage, sheetIndex, handler);
+            } finally {
+                opcPackage.revert();
+            }
+        }
+        catch (XLSXHeaderFoundException e) {
+            // safe to ignore this exception
+        }
+        catch (SAXException | ParserConfigurationException | IOException | InvalidFormatException | XMLStreamException e) {
+            throw new ExcelImporterException("Error while opening workbook:" , e);
+        }
         return headerRow;
     }
 
     public static long readDataRows(File excelFile, int sheetIndex, int startRowIndex, ExcelRowProcessor rowProcessor, Predicate<String> isColumnUsed) throws ExcelImporterException {
-        parseExcelFile(excelFile, sheetIndex, 0, null, startRowIndex, rowProcessor, isColumnUsed);
-        return rowProcessor.getRowCounter();
-    }
-
-    private static void parseExcelFile(File excelFile, int sheetIndex, int headerRowIndex, List<ExcelColumn> headerRow,
-                                      int startRowIndex, ExcelRowProcessor rowProcessor, Predicate<String> isColumnUsed) throws ExcelImporterException {
         try (XSSFWorkbook workbook = new XSSFWorkbook(excelFile) {
             @Override
             public void parseSheet(java.util.Map<String, XSSFSheet> shIdMap, CTSheet ctSheet) {
@@ -56,33 +77,38 @@ public class ExcelXLSXDataReader {
         }) {
             try (var opcPackage = workbook.getPackage()) {
                 var strings = new ReadOnlySharedStringsTable(opcPackage, false);
-                ContentHandler handler;
-                if (rowProcessor != null) {
-                    handler = new ExtendedXSSFSheetXMLHandler(workbook.getStylesSource(), strings,
-                            createSheetHandlerForData(sheetIndex, startRowIndex, rowProcessor, isColumnUsed),
-                            formatter, false);
-                } else {
-                    handler = new ExtendedXSSFSheetXMLHandler(workbook.getStylesSource(), strings,
-                            createSheetHandlerForHeader(headerRowIndex, headerRow), formatter, false);
-                }
-                XMLReader sheetParser = XMLHelper.newXMLReader();
-                sheetParser.setContentHandler(handler);
-                ArrayList<PackagePart> sheets = opcPackage.getPartsByContentType(XSSFRelation.WORKSHEET.getContentType());
-                try (var sheet = sheets.get(sheetIndex).getInputStream()) {
-                    InputSource sheetSource = new InputSource(sheet);
-                    sheetParser.parse(sheetSource);
-                }
+                ContentHandler handler = new ExtendedXSSFSheetXMLHandler(workbook.getStylesSource(), strings,
+                        createSheetHandlerForData(sheetIndex, startRowIndex, rowProcessor, isColumnUsed),
+                        formatter, false);
+                parseSheet(opcPackage, sheetIndex, handler);
             }
         }
-        catch (XLSXHeaderFoundException e) {
-            // safe to ignore this exception
-        }
         catch (SAXException | ParserConfigurationException | IOException | InvalidFormatException e) {
             throw new ExcelImporterException("Error while opening workbook:" , e);
         } finally {
-            if (rowProcessor != null) {
-                handleRowProcessorCompletion(rowProcessor);
-            }
+            handleRowProcessorCompletion(rowProcessor);
+        }
+        return rowProcessor.getRowCounter();
+    }
+
+    private static void parseSheet(OPCPackage opcPackage, int sheetIndex, ContentHandler handler) throws SAXException, ParserConfigurationException, IOException {
+        XMLReader sheetParser = XMLHelper.newXMLReader();
+        sheetParser.setContentHandler(handler);
+        ArrayList<PackagePart> sheets = opcPackage.getPartsByContentType(XSSFRelation.WORKSHEET.getContentType());
+        try (var sheet = sheets.get(sheetIndex).getInputStream()) {
+            InputSource sheetSource = new InputSource(sheet);
+            sheetParser.parse(sheetSource);
+        }
+    }
+
+    private static StylesTable loadStyles(OPCPackage opcPackage) {
+        ArrayList<PackagePart> parts = opcPackage.getPartsByContentType(XSSFRelation.STYLES.getContentType());
+        if (parts.isEmpty())
+            return null;
+        try {
+            return new StylesTable(parts.get(0));
+        } catch (IOException e) {
+            throw new ExcelRuntimeException("Unable to read the styles of the workbook", e);
         }
     }
 
@@ -147,6 +173,7 @@ public class ExcelXLSXDataReader {
     private static ExtendedXSSFSheetXMLHandler.SheetContentsHandler createSheetHandlerForData(int sheetIdx, int startRowIndex, ExcelRowProcessor rowProcessor, Predicate<String> isColumnUsed) {
         return new ExtendedXSSFSheetXMLHandler.SheetContentsHandler() {
             final ArrayList<ExcelRowProcessor.ExcelCellData> data = new ArrayList<>();
+            final Map<Integer, ColumnDictionary> dictionaries = new HashMap<>();
             boolean isNewRowStarted = false;
 
             @Override
@@ -199,10 +226,10 @@ public class ExcelXLSXDataReader {
                                 data.add(new ExcelRowProcessor.ExcelCellData(columnIndex, rawValue, "ERROR:" + rawValue));
                                 break;
                             case FORMULA:
-                                data.add(new ExcelRowProcessor.ExcelCellData(columnIndex, rawValue, rawValue));
+                                data.add(ExcelRowProcessor.ExcelCellData.encoded(columnIndex, rawValue, rawValue, getDictionary(columnIndex)));
                                 break;
                             case STRING: // We haven't seen this yet.
-                                data.add(new ExcelRowProcessor.ExcelCellData(columnIndex, rawValue, formattedValue));
+                                data.add(ExcelRowProcessor.ExcelCellData.encoded(columnIndex, rawValue, formattedValue, getDictionary(columnIndex)));
                                 break;
                             case NUMERIC:
                                 if (formatString != null) {
@@ -222,6 +249,10 @@ public class ExcelXLSXDataReader {
                     throw new ExcelRuntimeException(String.format("Unable to read Excel row #%d and cell #%d @Sheet #%d", cellAddr.getRow() + 1, columnIndex + 1, sheetIdx), e);
                 }
             }
+
+            private ColumnDictionary getDictionary(int columnIndex) {
+                return dictionaries.computeIfAbsent(columnIndex, i -> new ColumnDictionary());
+            }
         };
     }
 }
@@ -21,15 +21,18 @@ import org.xml.sax.helpers.DefaultHandler;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.function.Supplier;
 
 import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
 
 public class ExtendedXSSFSheetXMLHandler extends DefaultHandler {
     private static final Logger LOG = LogManager.getLogger(ExtendedXSSFSheetXMLHandler.class);
     /**
-     * Table with the styles used for formatting
+     * Table with the styles used for formatting, resolved on first use
      */
-    private final Styles stylesTable;
+    private final Supplier<Styles> stylesSupplier;
+    private Styles stylesTable;
+    private boolean stylesResolved;
     /**
      * Table with cell comments
      */
@@ -72,17 +75,17 @@ public class ExtendedXSSFSheetXMLHandler extends DefaultHandler {
     /**
      * Accepts objects needed while parsing.
      *
-     * @param styles  Table of styles
+     * @param styles  Supplier of the table of styles, only invoked once a cell needs formatting
      * @param strings Table of shared strings
      */
     public ExtendedXSSFSheetXMLHandler(
-            Styles styles,
+            Supplier<Styles> styles,
             Comments comments,
             SharedStrings strings,
             ExtendedXSSFSheetXMLHandler.SheetContentsHandler sheetContentsHandler,
             DataFormatter dataFormatter,
             boolean formulasNotResults) {
-        this.stylesTable = styles;
+        this.stylesSupplier = styles;
         this.comments = comments;
         this.sharedStringsTable = strings;
         this.output = sheetContentsHandler;
@@ -93,6 +96,22 @@ public class ExtendedXSSFSheetXMLHandler extends DefaultHandler {
         init(comments);
     }
 
+    /**
+     * Accepts objects needed while parsing.
+     *
+     * @param styles  Table of styles
+     * @param strings Table of shared strings
+     */
+    public ExtendedXSSFSheetXMLHandler(
+            Styles styles,
+            Comments comments,
+            SharedStrings strings,
+            ExtendedXSSFSheetXMLHandler.SheetContentsHandler sheetContentsHandler,
+            DataFormatter dataFormatter,
+            boolean formulasNotResults) {
+        this(() -> styles, comments, strings, sheetContentsHandler, dataFormatter, formulasNotResults);
+    }
+
     /**
      * Accepts objects needed while parsing.
      *
@@ -108,6 +127,21 @@ public class ExtendedXSSFSheetXMLHandler extends DefaultHandler {
         this(styles, null, strings, sheetContentsHandler, dataFormatter, formulasNotResults);
     }
 
+    /**
+     * Accepts objects needed while parsing.
+     *
+     * @param styles  Supplier of the table of styles, only invoked once a cell needs formatting
+     * @param strings Table of shared strings
+     */
+    public ExtendedXSSFSheetXMLHandler(
+            Supplier<Styles> styles,
+            SharedStrings strings,
+            ExtendedXSSFSheetXMLHandler.SheetContentsHandler sheetContentsHandler,
+            DataFormatter dataFormatter,
+            boolean formulasNotResults) {
+        this(styles, null, strings, sheetContentsHandler, dataFormatter, formulasNotResults);
+    }
+
     /**
      * Accepts objects needed while parsing.
      *
@@ -131,6 +165,14 @@ public class ExtendedXSSFSheetXMLHandler extends DefaultHandler {
         }
     }
 
+    private Styles getStylesTable() {
+        if (!stylesResolved) {
+            stylesTable = stylesSupplier.get();
+            stylesResolved = true;
+        }
+        return stylesTable;
+    }
+
     private boolean isTextTag(String name) {
         if ("v".equals(name)) {
             // Easy, normal v text tag
@@ -239,12 +281,13 @@ public class ExtendedXSSFSheetXMLHandler extends DefaultHandler {
             } else {
                 // Number, but almost certainly with a special style or format
                 XSSFCellStyle style = null;
-                if (stylesTable != null) {
+                Styles styles = getStylesTable();
+                if (styles != null) {
                     if (cellStyleStr != null) {
                         int styleIndex = Integer.parseInt(cellStyleStr);
-                        style = stylesTable.getStyleAt(styleIndex);
-                    } else if (stylesTable.getNumCellStyles() > 0) {
-                        style = stylesTable.getStyleAt(0);
+                        style = styles.getStyleAt(styleIndex);
+                    } else if (styles.getNumCellStyles() > 0) {
+                        style = styles.getStyleAt(0);
                     }
                 }
                 if (style != null) {
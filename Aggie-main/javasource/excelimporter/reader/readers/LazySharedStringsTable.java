@@ -0,0 +1,123 @@
+package excelimporter.reader.readers;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read only shared strings table which only parses the shared strings part up to the highest index that has been
+ * requested so far. When probing the header row only the first few strings are needed, so this avoids loading the
+ * complete table of a large workbook into memory.
+ * Phonetic runs are skipped, just like {@link org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable} does.
+ */
+class LazySharedStringsTable implements SharedStrings, Closeable {
+    private final InputStream stream;
+    private final XMLStreamReader reader;
+    private final List<String> strings = new ArrayList<>();
+    private int count;
+    private int uniqueCount;
+    private boolean exhausted;
+
+    LazySharedStringsTable(OPCPackage opcPackage) throws IOException, XMLStreamException {
+        final List<PackagePart> parts = opcPackage.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+        if (parts.isEmpty()) {
+            stream = null;
+            reader = null;
+            exhausted = true;
+            return;
+        }
+
+        stream = parts.get(0).getInputStream();
+        reader = XMLHelper.newXMLInputFactory().createXMLStreamReader(stream);
+        while (reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT && "sst".equals(reader.getLocalName())) {
+                count = parseCount(reader.getAttributeValue(null, "count"));
+                uniqueCount = parseCount(reader.getAttributeValue(null, "uniqueCount"));
+                return;
+            }
+        }
+        exhausted = true;
+    }
+
+    private static int parseCount(String value) {
+        return value == null ? -1 : Integer.parseInt(value);
+    }
+
+    @Override
+    public RichTextString getItemAt(int idx) {
+        try {
+            while (strings.size() <= idx && !exhausted) {
+                readNextItem();
+            }
+        } catch (XMLStreamException e) {
+            throw new ExcelRuntimeException("Unable to read shared string #" + idx, e);
+        }
+        return new XSSFRichTextString(strings.get(idx));
+    }
+
+    /**
+     * Reads the next &lt;si&gt; element, concatenating all text runs except the phonetic ones.
+     */
+    private void readNextItem() throws XMLStreamException {
+        StringBuilder item = null;
+        boolean inPhoneticRun = false;
+        while (reader.hasNext()) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                final String name = reader.getLocalName();
+                if ("si".equals(name)) {
+                    item = new StringBuilder();
+                } else if ("rPh".equals(name)) {
+                    inPhoneticRun = true;
+                } else if ("t".equals(name) && item != null && !inPhoneticRun) {
+                    item.append(reader.getElementText());
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                final String name = reader.getLocalName();
+                if ("rPh".equals(name)) {
+                    inPhoneticRun = false;
+                } else if ("si".equals(name) && item != null) {
+                    strings.add(item.toString());
+                    return;
+                }
+            }
+        }
+        exhausted = true;
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public int getUniqueCount() {
+        return uniqueCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (reader != null)
+                reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            if (stream != null)
+                stream.close();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package excelimporter.reader.readers.replication;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.mendix.replication.ICustomValueParser;
+import com.mendix.replication.ParseException;
+
+/**
+ * Memoizes the results of another value parser, keyed on the raw input value.
+ * Only use this for parsers that always return the same output for the same input, e.g. a microflow which maps
+ * a small set of codes to enumeration values. The cache is a bounded LRU, so the least recently used inputs are
+ * evicted once more than maxEntries distinct values have been parsed.
+ */
+public class CachingValueParser implements ICustomValueParser {
+	public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+	private static final Object NULL_KEY = new Object();
+
+	private final ICustomValueParser parser;
+	private final Map<Object, Object> cache;
+
+	public CachingValueParser(ICustomValueParser parser) {
+		this(parser, DEFAULT_MAX_ENTRIES);
+	}
+
+	public CachingValueParser(ICustomValueParser parser, int maxEntries) {
+		this.parser = parser;
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Object, Object> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	@Override
+	public Object parseValue(Object value) throws ParseException {
+		final Object key = (value == null) ? NULL_KEY : value;
+		if (cache.containsKey(key))
+			return cache.get(key);
+
+		final Object parsed = parser.parseValue(value);
+		cache.put(key, parsed);
+		return parsed;
+	}
+}
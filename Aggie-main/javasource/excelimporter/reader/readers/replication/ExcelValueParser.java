@@ -69,6 +69,10 @@ public class ExcelValueParser extends AbstractValueExtractor {
 
 		for (ExcelCellData object : objects) {
 			if (object != null && object.getColumnIndex() == columnIndex) {
+				// Encoded string cells share their converted value with every other cell of the same code.
+				// Dates are mutable and microflow parsers may have side effects, so those are converted every time.
+				if (object.isEncoded() && type != PrimitiveType.DateTime && !settings.hasValueParser(column))
+					return object.getDictionary().convert(object.getValueCode(), type, () -> getValue(type, column, object));
 				return getValue(type, column, object);
 			}
 		}